@@ -0,0 +1,87 @@
+package com.projects.barcodescanner;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.zxing.BarcodeFormat;
+import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.projects.barcodescanner.scanner.ScanProfile;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures ML Kit decode latency for every {@link ScanProfile} on the same EAN-13 test image.
+ * Results are written to logcat under the "ScanProfileBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScanProfileBenchmark {
+
+    private static final String TAG = "ScanProfileBenchmark";
+    private static final String EAN_13 = "5901234123457";
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 30;
+
+    @Test
+    public void decodeLatencyPerProfile() throws Exception {
+        InputImage image = InputImage.fromBitmap(createTestFrame(), 0);
+
+        for (ScanProfile profile : ScanProfile.values()) {
+            BarcodeScanner scanner = BarcodeScanning.getClient(profile.toScannerOptions());
+            try {
+                for (int i = 0; i < WARMUP_RUNS; i++) {
+                    Tasks.await(scanner.process(image));
+                }
+
+                long[] samples = new long[MEASURED_RUNS];
+                List<Barcode> barcodes = null;
+                for (int i = 0; i < MEASURED_RUNS; i++) {
+                    long start = System.nanoTime();
+                    barcodes = Tasks.await(scanner.process(image));
+                    samples[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(samples);
+
+                Log.i(TAG, String.format("%-12s p50=%.2fms p90=%.2fms decoded=%d",
+                        profile.getDisplayName(),
+                        samples[MEASURED_RUNS / 2] / 1e6,
+                        samples[MEASURED_RUNS * 9 / 10] / 1e6,
+                        barcodes.size()));
+
+                if (profile != ScanProfile.LOGISTICS) {
+                    assertFalse(profile.getDisplayName() + " should read EAN-13", barcodes.isEmpty());
+                    assertEquals(EAN_13, barcodes.get(0).getRawValue());
+                }
+            } finally {
+                scanner.close();
+            }
+        }
+    }
+
+    /**
+     * A 1280x720 frame with an EAN-13 label in the centre and empty space around it,
+     * roughly what the camera sees when a product is held in the viewfinder.
+     */
+    private Bitmap createTestFrame() throws Exception {
+        Bitmap label = new BarcodeEncoder().encodeBitmap(EAN_13, BarcodeFormat.EAN_13, 600, 240);
+        Bitmap frame = Bitmap.createBitmap(1280, 720, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(frame);
+        canvas.drawColor(Color.WHITE);
+        canvas.drawBitmap(label, (frame.getWidth() - label.getWidth()) / 2f, (frame.getHeight() - label.getHeight()) / 2f, null);
+        return frame;
+    }
+}
@@ -38,6 +38,8 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.projects.barcodescanner.constants.Constants;
+import com.projects.barcodescanner.db.ApiClient;
+import com.projects.barcodescanner.db.ProductRepository;
 import com.projects.barcodescanner.db.SupabaseService;
 
 import java.io.File;
@@ -53,7 +55,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -116,12 +117,8 @@ public class AddProductActivity extends AppCompatActivity {
         setupCountrySpinner();
         setupEditTextScrolling(); // <<< *** ADDED THIS LINE ***
 
-        httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)   // longer connection timeout
-                .readTimeout(60, TimeUnit.SECONDS)     // allow slow API responses
-                .writeTimeout(60, TimeUnit.SECONDS)    // allow time to upload data
-                .callTimeout(90, TimeUnit.SECONDS)     // total time for the call
-                .build();
+        // Shared app-wide client, with timeouts for the slow product search APIs
+        httpClient = ApiClient.externalApis();
 
         gson = new Gson();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
@@ -604,6 +601,8 @@ public class AddProductActivity extends AppCompatActivity {
             public void onResponse(@NonNull Call call, @NonNull Response response) {
                 runOnUiThread(() -> {
                     if (response.isSuccessful()) {
+                        // Otherwise a cached "not found" would hide the new product for a while
+                        ProductRepository.getInstance(AddProductActivity.this).invalidate(productBarcode);
                         Toast.makeText(AddProductActivity.this, "Product uploaded successfully!", Toast.LENGTH_SHORT).show();
                         finish();
                     } else {
@@ -1,14 +1,16 @@
 package com.projects.barcodescanner;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.graphics.RectF;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
@@ -17,16 +19,20 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.ResolutionInfo;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.android.material.button.MaterialButton;
@@ -34,18 +40,44 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
+import com.projects.barcodescanner.adapter.InventoryAdapter;
+import com.projects.barcodescanner.db.ApiClient;
+import com.projects.barcodescanner.db.ProductJson;
+import com.projects.barcodescanner.db.ProductRepository;
 import com.projects.barcodescanner.db.SupabaseService;
-
+import com.projects.barcodescanner.model.Product;
+import com.projects.barcodescanner.scanner.AnalysisResolutionPolicy;
+import com.projects.barcodescanner.scanner.BarcodeDecoder;
+import com.projects.barcodescanner.scanner.DecoderEngine;
+import com.projects.barcodescanner.scanner.FocusFilter;
+import com.projects.barcodescanner.scanner.Gtin;
+import com.projects.barcodescanner.scanner.FrameScheduler;
+import com.projects.barcodescanner.scanner.InventorySession;
+import com.projects.barcodescanner.scanner.LumaFrame;
+import com.projects.barcodescanner.scanner.LumaFramePool;
+import com.projects.barcodescanner.scanner.MotionGate;
+import com.projects.barcodescanner.scanner.ScanMetrics;
+import com.projects.barcodescanner.scanner.ScanMode;
+import com.projects.barcodescanner.scanner.ScanPipeline;
+import com.projects.barcodescanner.scanner.ScanProfile;
+import com.projects.barcodescanner.scanner.ScanRegion;
+import com.projects.barcodescanner.scanner.ScanTrace;
+import com.projects.barcodescanner.scanner.ScannerSettings;
+import com.projects.barcodescanner.scanner.ScannerWarmup;
+import com.projects.barcodescanner.scanner.TorchController;
+
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -54,8 +86,10 @@ import okhttp3.Response;
 public class CameraScannerActivity extends AppCompatActivity implements ProductNotFoundBottomSheet.OnScanCompletionListener, ProductFoundBottomSheet.OnScanCompletionListener, SensorEventListener {
 
     private ExecutorService cameraExecutor;
+    private ExecutorService decodeExecutor;
     private PreviewView cameraPreviewView;
-    private BarcodeScanner scanner;
+    private ScannerSettings scannerSettings;
+    private MaterialButton profileButton;
     private ProcessCameraProvider cameraProvider;
     private Camera camera;
 
@@ -68,16 +102,71 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
     // --- Light Sensor ---
     private Sensor lightSensor;
     private boolean isTorchOn = false;
-    private static final float DARK_THRESHOLD = 15.0f;
-    private boolean simulateLux = false;
+    // Torch follows the brightness of the viewfinder crop; the light sensor is only a hint
+    private TorchController torchController;
     // --- Accelerometer for Shake Detection ---
     private Sensor accelerometerSensor;
     private long lastShakeTime;
     private float lastX, lastY, lastZ;
     private static final int SHAKE_THRESHOLD = 800;
     private static final int SHAKE_TIMEOUT = 500;
-
-    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    // The same motion stream keeps blurred frames away from the decoder
+    private Sensor gyroscopeSensor;
+    private final MotionGate motionGate = new MotionGate();
+    // Out-of-focus and washed-out crops are dropped before they reach the decoder
+    private final FocusFilter focusFilter = new FocusFilter();
+
+    // --- Adaptive frame scheduling ---
+    // Matches the analysis rate to measured decode latency: ~30fps at most, overlapping decodes
+    // only on devices with the cores to spare.
+    private static final long MIN_FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+    private static final int MAX_DECODES_IN_FLIGHT = Runtime.getRuntime().availableProcessors() >= 4 ? 2 : 1;
+    private final FrameScheduler frameScheduler = new FrameScheduler(MIN_FRAME_INTERVAL_NANOS, MAX_DECODES_IN_FLIGHT);
+
+    // --- Region of interest ---
+    // Only the part of each frame under the overlay's viewfinder box is handed to the decoder.
+    private final ScanRegion scanRegion = new ScanRegion();
+    // Crop buffers are recycled so steady-state scanning allocates no frame memory
+    private final LumaFramePool framePool = new LumaFramePool(MAX_DECODES_IN_FLIGHT + 1);
+
+    // --- Pipeline timing ---
+    // Per-stage histograms for this session, dumped to a file whenever the screen pauses.
+    private final ScanMetrics scanMetrics = new ScanMetrics();
+
+    // --- Continuous scan mode ---
+    // Preview and ImageAnalysis stay bound for the whole session. While a result is on screen
+    // the pipeline is paused so the analyzer drops frames instead of the camera being unbound.
+    // A decoded value must also repeat across recent frames before it triggers a lookup.
+    private ScanPipeline scanPipeline;
+    private ProductRepository productRepository;
+    private final AtomicInteger scanCounter = new AtomicInteger();
+    private volatile int currentScanId;
+    private volatile long scanCommittedAtNanos;
+
+    // --- Inventory and multi-capture modes ---
+    // Scans are counted without pausing and products are resolved in batches into a running list.
+    // Multi capture uses the same list, but every code in the frame counts and each code only once.
+    private static final int INVENTORY_BATCH_SIZE = 25;
+    private static final long INVENTORY_BATCH_DELAY_MS = 1500;
+    private static final long INVENTORY_REPEAT_GAP_MS = 1500;
+    // Wait after a failed batch, doubled on each failure in a row, e.g. while offline
+    private static final long INVENTORY_RETRY_MIN_MS = 2000;
+    private static final long INVENTORY_RETRY_MAX_MS = 60_000;
+    // All the inventory list shows of a product, and whether it is a tombstone
+    private static final String[] INVENTORY_COLUMNS = {"barcode", "product_name", "image_url", "deleted"};
+    private volatile ScanMode scanMode = ScanMode.SINGLE;
+    private final InventorySession stockCountSession = new InventorySession(INVENTORY_REPEAT_GAP_MS);
+    // The session the list shows: the stock count, or the current multi capture
+    private volatile InventorySession inventorySession = stockCountSession;
+    private final Handler inventoryHandler = new Handler(Looper.getMainLooper());
+    private final Runnable inventoryFlushRunnable = this::flushInventoryBatch;
+    private boolean inventoryFlushScheduled = false;
+    private boolean inventoryLookupInFlight = false;
+    // Zero unless the last batch failed
+    private long inventoryRetryDelayMs = 0;
+    private InventoryAdapter inventoryAdapter;
+    private RecyclerView inventoryList;
+    private MaterialButton modeButton;
 
     private final ActivityResultLauncher<String> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
@@ -94,6 +183,7 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_camera_scanner);
+        productRepository = ProductRepository.getInstance(this);
 
         // --- MODIFIED: Find all relevant UI elements by their IDs ---
         cameraPreviewView = findViewById(R.id.cameraPreviewView);
@@ -101,6 +191,8 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         instructionText = findViewById(R.id.instructionText);
         // --- END MODIFICATION ---
 
+        scannerOverlay.addOnLayoutChangeListener((v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> updateScanRegion());
+
         MaterialButton closeButton = findViewById(R.id.closeButton);
         closeButton.setOnClickListener(v -> finish());
 
@@ -110,8 +202,7 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         // Initialize Light Sensor
         lightSensor = sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT);
         if (lightSensor == null) {
-            Toast.makeText(this, "No light sensor found. Auto-torch simulation enabled.", Toast.LENGTH_SHORT).show();
-            simulateLux = true; // enable simulation
+            Log.d("SensorManager", "No light sensor found, auto-torch uses camera frames only");
         }
 
         // Initialize Accelerometer Sensor
@@ -120,12 +211,115 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
             Toast.makeText(this, "No accelerometer found. Shake to restart is disabled.", Toast.LENGTH_SHORT).show();
         }
         lastShakeTime = System.currentTimeMillis();
-
+        // Optional; without it the motion gate works from the accelerometer alone
+        gyroscopeSensor = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+
+        // The decoder is created once and reused for every scan in this session.
+        // It is only rebuilt when the user switches symbology profile or decode engine.
+        scannerSettings = new ScannerSettings(this);
+        profileButton = findViewById(R.id.profileButton);
+        profileButton.setOnClickListener(v -> showProfilePicker());
+        profileButton.setOnLongClickListener(v -> {
+            showEnginePicker();
+            return true;
+        });
+        scanPipeline = new ScanPipeline(null, scanRegion, framePool, frameScheduler,
+                scannerSettings.createConsensus(), scanMetrics, this::onBarcodeCommitted);
+        scanPipeline.setMotionGate(motionGate);
+        scanPipeline.setFocusFilter(focusFilter);
+        torchController = new TorchController(enabled -> ContextCompat.getMainExecutor(this).execute(() -> {
+            Log.d("TorchController", "Torch " + (enabled ? "on" : "off"));
+            setTorchState(enabled);
+        }));
+        scanPipeline.setTorchController(torchController);
+        applyScanProfile(scannerSettings.getScanProfile());
+
+        inventoryList = findViewById(R.id.inventoryList);
+        inventoryAdapter = new InventoryAdapter();
+        inventoryList.setLayoutManager(new LinearLayoutManager(this));
+        inventoryList.setAdapter(inventoryAdapter);
+        modeButton = findViewById(R.id.modeButton);
+        modeButton.setOnClickListener(v -> {
+            ScanMode[] modes = ScanMode.values();
+            setScanMode(modes[(scanMode.ordinal() + 1) % modes.length]);
+        });
 
         cameraExecutor = Executors.newSingleThreadExecutor();
+        // Decodes run off the camera thread so the analyzer can hand over a frame and return
+        decodeExecutor = Executors.newFixedThreadPool(MAX_DECODES_IN_FLIGHT);
         checkCameraPermission();
     }
 
+    private void applyScanProfile(ScanProfile profile) {
+        DecoderEngine engine = scannerSettings.getDecoderEngine();
+        // The first time round this is usually the decoder MainActivity already warmed up
+        boolean multiple = scanMode == ScanMode.MULTI;
+        BarcodeDecoder newDecoder = multiple ? null : ScannerWarmup.takeDecoder(profile, engine);
+        if (newDecoder == null) {
+            newDecoder = engine.createDecoder(profile, multiple);
+        }
+        // The old decoder is closed once decodes still running on it are done
+        scanPipeline.setDecoder(newDecoder);
+        profileButton.setText(profile.getDisplayName());
+        Log.d("ScannerDebug", "Scan profile: " + profile.getDisplayName() + ", engine: " + engine.getDisplayName());
+    }
+
+    private void showProfilePicker() {
+        ScanProfile[] profiles = ScanProfile.values();
+        String[] names = new String[profiles.length];
+        for (int i = 0; i < profiles.length; i++) {
+            names[i] = profiles[i].getDisplayName();
+        }
+        int checked = scannerSettings.getScanProfile().ordinal();
+        new AlertDialog.Builder(this)
+                .setTitle("Barcode types")
+                .setSingleChoiceItems(names, checked, (dialog, which) -> {
+                    ScanProfile selected = profiles[which];
+                    scannerSettings.setScanProfile(selected);
+                    applyScanProfile(selected);
+                    dialog.dismiss();
+                })
+                .show();
+    }
+
+    private void setScanMode(ScanMode mode) {
+        boolean multipleChanged = (mode == ScanMode.MULTI) != (scanMode == ScanMode.MULTI);
+        scanMode = mode;
+        // Inventory and multi capture keep scanning after each code; single scan pauses on the result
+        scanPipeline.setPauseOnCommit(mode == ScanMode.SINGLE);
+        scanPipeline.setMultiValue(mode == ScanMode.MULTI);
+        if (multipleChanged) {
+            applyScanProfile(scannerSettings.getScanProfile());
+        }
+        modeButton.setText(mode.getDisplayName());
+        boolean showList = mode != ScanMode.SINGLE;
+        if (showList) {
+            // Every multi capture starts empty; the stock count carries on where it left off
+            inventorySession = mode == ScanMode.MULTI ? new InventorySession(Long.MAX_VALUE) : stockCountSession;
+            refreshInventoryList();
+            scheduleInventoryFlush();
+        }
+        inventoryList.setVisibility(showList ? View.VISIBLE : View.GONE);
+        Log.d("ScannerDebug", "Scan mode: " + mode.getDisplayName());
+    }
+
+    private void showEnginePicker() {
+        DecoderEngine[] engines = DecoderEngine.values();
+        String[] names = new String[engines.length];
+        for (int i = 0; i < engines.length; i++) {
+            names[i] = engines[i].getDisplayName();
+        }
+        int checked = scannerSettings.getDecoderEngine().ordinal();
+        new AlertDialog.Builder(this)
+                .setTitle("Decode engine")
+                .setSingleChoiceItems(names, checked, (dialog, which) -> {
+                    scannerSettings.setDecoderEngine(engines[which]);
+                    applyScanProfile(scannerSettings.getScanProfile());
+                    dialog.dismiss();
+                })
+                .show();
+    }
+
     private void checkCameraPermission() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
             startCamera();
@@ -135,7 +329,11 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
     }
 
     private void startCamera() {
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(this);
+        if (camera != null) {
+            // Use cases are already bound; nothing to restart.
+            return;
+        }
+        ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ScannerWarmup.getCameraProvider(this);
         cameraProviderFuture.addListener(() -> {
             try {
                 cameraProvider = cameraProviderFuture.get();
@@ -147,20 +345,20 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
     }
 
     private void bindCameraUseCases(ProcessCameraProvider cameraProvider) {
-        Preview preview = new Preview.Builder().build();
+        AnalysisResolutionPolicy resolutionPolicy = new AnalysisResolutionPolicy(scannerSettings.getAnalysisResolutionOverride());
+
+        Preview preview = new Preview.Builder()
+                .setResolutionSelector(resolutionPolicy.createPreviewSelector())
+                .build();
         preview.setSurfaceProvider(cameraPreviewView.getSurfaceProvider());
 
         ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(resolutionPolicy.createAnalysisSelector())
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
         imageAnalysis.setAnalyzer(cameraExecutor, this::analyzeImage);
 
-        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
-                .setBarcodeFormats(Barcode.FORMAT_ALL_FORMATS)
-                .build();
-        scanner = BarcodeScanning.getClient(options);
-
         CameraSelector cameraSelector = new CameraSelector.Builder()
                 .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                 .build();
@@ -168,6 +366,7 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         try {
             cameraProvider.unbindAll();
             camera = cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
+            logNegotiatedResolutions(resolutionPolicy, preview, imageAnalysis);
             // --- NEW: Start the overlay animation when the camera is successfully bound ---
             if (scannerOverlay != null) {
                 scannerOverlay.startAnimation();
@@ -177,98 +376,320 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         }
     }
 
-    @SuppressLint("UnsafeOptInUsageError")
+    private void logNegotiatedResolutions(AnalysisResolutionPolicy policy, Preview preview, ImageAnalysis imageAnalysis) {
+        ResolutionInfo analysisInfo = imageAnalysis.getResolutionInfo();
+        ResolutionInfo previewInfo = preview.getResolutionInfo();
+        Log.i("ScannerDebug", "Analysis resolution: requested " + policy.getTargetSize()
+                + ", negotiated " + (analysisInfo != null ? analysisInfo.getResolution() : "unknown")
+                + "; preview " + (previewInfo != null ? previewInfo.getResolution() : "unknown"));
+    }
+
+    private void updateScanRegion() {
+        RectF box = scannerOverlay.getBoxRect();
+        if (box == null) {
+            return;
+        }
+        PreviewView.ScaleType scaleType = cameraPreviewView.getScaleType();
+        boolean fillCenter = scaleType == PreviewView.ScaleType.FILL_CENTER
+                || scaleType == PreviewView.ScaleType.FILL_START
+                || scaleType == PreviewView.ScaleType.FILL_END;
+        // The overlay and the preview both fill the parent, so they share one coordinate space.
+        scanRegion.setViewport(cameraPreviewView.getWidth(), cameraPreviewView.getHeight(),
+                box.left, box.top, box.right, box.bottom, fillCenter);
+    }
+
+    /**
+     * Copies the viewfinder region of the Y plane into a standalone frame so the camera image
+     * can be released before decoding starts.
+     */
+    private LumaFrame extractScanRegion(ImageProxy imageProxy) {
+        ScanTrace.begin("Scan:frameCopy");
+        try {
+            ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+            return scanPipeline.extractFrame(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                    imageProxy.getWidth(), imageProxy.getHeight(),
+                    imageProxy.getImageInfo().getRotationDegrees(), imageProxy.getImageInfo().getTimestamp());
+        } finally {
+            ScanTrace.end();
+        }
+    }
+
     private void analyzeImage(ImageProxy imageProxy) {
-        if (imageProxy.getImage() == null) {
+        // Paused while a result is shown; otherwise the scheduler decides whether this frame is decoded.
+        if (!scanPipeline.tryBeginFrame(System.nanoTime())) {
             imageProxy.close();
             return;
         }
 
-        if (isProcessing.get()) {
+        LumaFrame frame;
+        try {
+            frame = extractScanRegion(imageProxy);
+        } catch (RuntimeException e) {
+            scanPipeline.abandonFrame(null);
+            throw e;
+        } finally {
             imageProxy.close();
+        }
+
+        try {
+            decodeExecutor.execute(() -> decodeFrame(frame));
+        } catch (RejectedExecutionException e) {
+            // The activity is being torn down
+            scanPipeline.abandonFrame(frame);
+        }
+    }
+
+    private void decodeFrame(LumaFrame frame) {
+        ScanTrace.begin("Scan:decode");
+        try {
+            scanPipeline.processFrame(frame);
+        } catch (Exception e) {
+            Log.w("ScannerDebug", "Decode failed", e);
+        } finally {
+            ScanTrace.end();
+        }
+    }
+
+    /**
+     * Called on a decode thread once a value has passed the consensus vote.
+     */
+    private void onBarcodeCommitted(String barcodeValue) {
+        if (scanMode != ScanMode.SINGLE) {
+            // Count it and keep scanning; the lookup happens later as part of a batch
+            onInventoryScan(barcodeValue);
             return;
         }
-        isProcessing.set(true);
+        scanCommittedAtNanos = System.nanoTime();
+        currentScanId = scanCounter.incrementAndGet();
+        ScanTrace.beginAsync("Scan:toResult", currentScanId);
+        // The pipeline stays paused until onScanCompleted().
+        // The camera itself keeps running so the next scan starts within a few frames.
+        ContextCompat.getMainExecutor(this).execute(() -> {
+            if (scannerOverlay != null) {
+                scannerOverlay.stopAnimation();
+            }
+            if (instructionText != null) {
+                instructionText.setVisibility(View.GONE);
+            }
+        });
+        Log.d("ScannerDebug", "Barcode Scanned: " + barcodeValue);
+        checkProductInDatabase(barcodeValue);
+    }
 
-        InputImage inputImage = InputImage.fromMediaImage(
-                imageProxy.getImage(),
-                imageProxy.getImageInfo().getRotationDegrees()
-        );
+    private void onInventoryScan(String barcode) {
+        if (!inventorySession.add(barcode, System.currentTimeMillis())) {
+            return; // Same unit still in front of the camera, or already captured
+        }
+        Log.d("ScannerDebug", "Inventory scan: " + barcode);
+        runOnUiThread(() -> {
+            refreshInventoryList();
+            scheduleInventoryFlush();
+        });
+    }
 
-        scanner.process(inputImage)
-                .addOnSuccessListener(barcodes -> {
-                    if (!barcodes.isEmpty()) {
-                        ContextCompat.getMainExecutor(this).execute(() -> {
-                            // --- MODIFIED: Stop animations and hide UI when a barcode is found ---
-                            if (scannerOverlay != null) {
-                                scannerOverlay.stopAnimation();
-                            }
-                            if (instructionText != null) {
-                                instructionText.setVisibility(View.GONE);
-                            }
-                            // --- END MODIFICATION ---
+    private void refreshInventoryList() {
+        inventoryAdapter.setItems(inventorySession.snapshot());
+        inventoryList.scrollToPosition(0);
+    }
 
-                            setTorchState(false); // Turn off torch before stopping camera
-                            if (cameraProvider != null) {
-                                cameraProvider.unbindAll();
-                            }
-                        });
-                        String barcodeValue = barcodes.get(0).getRawValue();
-                        Log.d("ScannerDebug", "Barcode Scanned: " + barcodeValue);
-                        checkProductInDatabase(barcodeValue);
-                    } else {
-                        isProcessing.set(false);
-                    }
-                })
-                .addOnFailureListener(e -> isProcessing.set(false))
-                .addOnCompleteListener(task -> imageProxy.close());
+    /**
+     * Flushes at once when a full batch is waiting, otherwise shortly after the first queued scan
+     * so that codes scanned in quick succession share one request. After a failed batch, waits
+     * out the retry delay whatever is waiting.
+     */
+    private void scheduleInventoryFlush() {
+        if (inventoryLookupInFlight) {
+            return; // The running lookup reschedules when it completes
+        }
+        if (inventoryRetryDelayMs > 0) {
+            if (!inventoryFlushScheduled && inventorySession.getPendingCount() > 0) {
+                inventoryFlushScheduled = true;
+                inventoryHandler.postDelayed(inventoryFlushRunnable, inventoryRetryDelayMs);
+            }
+        } else if (inventorySession.getPendingCount() >= INVENTORY_BATCH_SIZE) {
+            inventoryHandler.removeCallbacks(inventoryFlushRunnable);
+            flushInventoryBatch();
+        } else if (!inventoryFlushScheduled && inventorySession.getPendingCount() > 0) {
+            inventoryFlushScheduled = true;
+            inventoryHandler.postDelayed(inventoryFlushRunnable, INVENTORY_BATCH_DELAY_MS);
+        }
     }
 
-    private void checkProductInDatabase(String barcode) {
-        SupabaseService.getProductByBarcode(barcode, new Callback() {
+    private void flushInventoryBatch() {
+        inventoryFlushScheduled = false;
+        if (inventoryLookupInFlight) {
+            return;
+        }
+        // Results go to the session the batch came from, even if the mode changes meanwhile
+        InventorySession session = inventorySession;
+        List<String> batch = session.drainBatch(INVENTORY_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return;
+        }
+        inventoryLookupInFlight = true;
+        // Products synced to the device need no request
+        productRepository.getStoredProducts(batch, stored -> {
+            List<String> misses = new ArrayList<>(batch.size());
+            for (String barcode : batch) {
+                Product product = stored.get(barcode);
+                if (product == null) {
+                    misses.add(barcode);
+                } else {
+                    String name = product.getProductName() != null ? product.getProductName() : "Product Name";
+                    session.markFound(barcode, name, product.getImageUrl());
+                }
+            }
+            if (misses.isEmpty()) {
+                runOnUiThread(() -> onInventoryBatchDone(true));
+            } else {
+                fetchInventoryBatch(session, misses);
+            }
+        });
+    }
+
+    private void fetchInventoryBatch(InventorySession session, List<String> batch) {
+        List<String> variants = new ArrayList<>(batch.size() * 3);
+        for (String barcode : batch) {
+            variants.addAll(Gtin.lookupVariants(barcode));
+        }
+        SupabaseService.getProductsByBarcodes(variants, INVENTORY_COLUMNS, new Callback() {
             @Override
             public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                Log.e("Supabase", "Failed to fetch product by barcode", e);
-                runOnUiThread(() -> showProductNotFoundPopup(barcode));
+                Log.e("Supabase", "Inventory batch lookup failed", e);
+                session.requeue(batch);
+                runOnUiThread(() -> onInventoryBatchDone(false));
             }
 
             @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    try {
-                        JsonArray jsonArray = JsonParser.parseString(responseBody).getAsJsonArray();
-
-                        if (jsonArray.size() > 0) {
-                            JsonObject productObject = jsonArray.get(0).getAsJsonObject();
-                            String name = "Product Name";
-                            if (productObject.has("product_name") && !productObject.get("product_name").isJsonNull()) {
-                                name = productObject.get("product_name").getAsString();
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                boolean succeeded = false;
+                try (Response closing = response) {
+                    if (!closing.isSuccessful() || closing.body() == null) {
+                        Log.e("Supabase", "Unsuccessful inventory batch response: " + closing.code());
+                        session.requeue(batch);
+                    } else {
+                        JsonArray jsonArray = JsonParser.parseString(closing.body().string()).getAsJsonArray();
+                        Set<String> found = new HashSet<>();
+                        for (int i = 0; i < jsonArray.size(); i++) {
+                            JsonObject productObject = jsonArray.get(i).getAsJsonObject();
+                            if (!productObject.has("barcode") || productObject.get("barcode").isJsonNull()
+                                    || ProductJson.isDeleted(productObject)) {
+                                continue;
                             }
-                            String description = "No description available";
-                            if (productObject.has("description") && !productObject.get("description").isJsonNull()) {
-                                description = productObject.get("description").getAsString();
+                            // Back to the key the scan was queued under
+                            String barcode = Gtin.canonicalKey(productObject.get("barcode").getAsString());
+                            if (barcode == null) {
+                                continue;
                             }
-                            String imageUrl = null;
-                            if (productObject.has("image_url") && !productObject.get("image_url").isJsonNull()) {
-                                imageUrl = productObject.get("image_url").getAsString();
+                            String name = productObject.has("product_name") && !productObject.get("product_name").isJsonNull()
+                                    ? productObject.get("product_name").getAsString() : "Product Name";
+                            String imageUrl = productObject.has("image_url") && !productObject.get("image_url").isJsonNull()
+                                    ? productObject.get("image_url").getAsString() : null;
+                            session.markFound(barcode, name, imageUrl);
+                            found.add(barcode);
+                        }
+                        for (String barcode : batch) {
+                            if (!found.contains(barcode)) {
+                                session.markNotFound(barcode);
                             }
-                            final String finalName = name;
-                            final String finalDescription = description;
-                            final String finalImageUrl = imageUrl;
-                            runOnUiThread(() -> showProductFoundPopup(barcode, finalName, finalDescription, finalImageUrl));
-
-                        } else {
-                            runOnUiThread(() -> showProductNotFoundPopup(barcode));
                         }
-                    } catch (Exception e) {
-                        Log.e("Supabase", "Error parsing JSON response", e);
-                        runOnUiThread(() -> showProductNotFoundPopup(barcode));
+                        succeeded = true;
                     }
-                } else {
-                    Log.e("Supabase", "Unsuccessful response: " + response.code());
-                    runOnUiThread(() -> showProductNotFoundPopup(barcode));
+                } catch (Exception e) {
+                    Log.e("Supabase", "Error parsing inventory batch", e);
+                    session.requeue(batch);
                 }
+                final boolean done = succeeded;
+                runOnUiThread(() -> onInventoryBatchDone(done));
+            }
+        });
+    }
+
+    private void onInventoryBatchDone(boolean succeeded) {
+        inventoryLookupInFlight = false;
+        if (succeeded) {
+            inventoryRetryDelayMs = 0;
+        } else {
+            inventoryRetryDelayMs = inventoryRetryDelayMs == 0
+                    ? INVENTORY_RETRY_MIN_MS : Math.min(inventoryRetryDelayMs * 2, INVENTORY_RETRY_MAX_MS);
+        }
+        refreshInventoryList();
+        scheduleInventoryFlush();
+    }
+
+    private void checkProductInDatabase(String barcode) {
+        final int scanId = currentScanId;
+        final long lookupStart = System.nanoTime();
+        ScanTrace.beginAsync("Scan:lookup", scanId);
+        // Repeat scans are answered from the cache, on this thread when the product is in memory
+        productRepository.getProduct(barcode, new ProductRepository.ProductCallback() {
+            private boolean answered = false;
+
+            @Override
+            public void onProductFound(Product product) {
+                // A refetched stale entry must not open a second sheet for the same scan
+                if (answered) {
+                    return;
+                }
+                answered = true;
+                recordLookup(scanId, lookupStart);
+                postResult(() -> showProductFoundPopup(barcode, product));
+            }
+
+            @Override
+            public void onProductNotFound() {
+                if (answered) {
+                    return;
+                }
+                answered = true;
+                recordLookup(scanId, lookupStart);
+                postResult(() -> showProductNotFoundPopup(barcode));
+            }
+
+            @Override
+            public void onError(IOException e) {
+                answered = true;
+                recordLookup(scanId, lookupStart);
+                Log.e("Supabase", "Failed to fetch product by barcode", e);
+                postResult(() -> showProductNotFoundPopup(barcode));
+            }
+        });
+    }
+
+    private void recordLookup(int scanId, long lookupStart) {
+        ScanTrace.endAsync("Scan:lookup", scanId);
+        scanMetrics.record(ScanMetrics.Stage.LOOKUP, System.nanoTime() - lookupStart);
+    }
+
+    /**
+     * Shows a scan result on the UI thread and closes the timing of the current scan.
+     */
+    private void postResult(Runnable showResult) {
+        final int scanId = currentScanId;
+        final long postedAt = System.nanoTime();
+        runOnUiThread(() -> {
+            ScanTrace.begin("Scan:showResult");
+            showResult.run();
+            ScanTrace.end();
+            long now = System.nanoTime();
+            scanMetrics.record(ScanMetrics.Stage.RESULT_UI, now - postedAt);
+            scanMetrics.record(ScanMetrics.Stage.SCAN_TO_RESULT, now - scanCommittedAtNanos);
+            ScanTrace.endAsync("Scan:toResult", scanId);
+        });
+    }
+
+    /**
+     * Writes this session's stage latencies to the app's files directory.
+     */
+    private void dumpScanMetrics() {
+        File dir = getExternalFilesDir(null) != null ? getExternalFilesDir(null) : getFilesDir();
+        File file = new File(dir, "scan-metrics-" + scanMetrics.getStartedAtMillis() + ".txt");
+        cameraExecutor.execute(() -> {
+            try {
+                scanMetrics.dumpTo(file);
+                Log.i("ScanMetrics", "Scan metrics written to " + file.getAbsolutePath());
+            } catch (IOException e) {
+                Log.e("ScanMetrics", "Failed to write scan metrics", e);
             }
         });
     }
@@ -280,8 +701,9 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         bottomSheet.show(getSupportFragmentManager(), "ProductNotFoundBottomSheetTag");
     }
 
-    private void showProductFoundPopup(String barcode, String name, String description, String imageUrl) {
-        ProductFoundBottomSheet bottomSheet = ProductFoundBottomSheet.newInstance(barcode, name, description, imageUrl);
+    private void showProductFoundPopup(String barcode, Product product) {
+        // The sheet passes the product on to the detail screen, which then needs no fetch of its own
+        ProductFoundBottomSheet bottomSheet = ProductFoundBottomSheet.newInstance(barcode, product);
         bottomSheet.setOnScanCompletionListener(this);
         bottomSheet.setCancelable(true);
         bottomSheet.show(getSupportFragmentManager(), "ProductFoundBottomSheetTag");
@@ -289,16 +711,18 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
 
     @Override
     public void onScanCompleted() {
-        isProcessing.set(false);
+        // Resume the analyzer; Preview and ImageAnalysis were never unbound.
+        scanPipeline.resume();
 
-        // --- NEW: Show UI elements again when restarting the scan ---
         if (instructionText != null) {
             instructionText.setVisibility(View.VISIBLE);
         }
-        // --- END NEW ---
+        if (scannerOverlay != null) {
+            scannerOverlay.startAnimation();
+        }
 
-        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-            startCamera(); // This will re-trigger bindCameraUseCases, which restarts the animation
+        if (camera == null && ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            startCamera();
         }
     }
 
@@ -311,7 +735,7 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
 
     private void restartScanning() {
         runOnUiThread(() -> {
-            if (!isProcessing.get()) return;
+            if (!scanPipeline.isPaused()) return;
             Toast.makeText(this, "Restarting Scan...", Toast.LENGTH_SHORT).show();
             Fragment foundSheet = getSupportFragmentManager().findFragmentByTag("ProductFoundBottomSheetTag");
             if (foundSheet instanceof BottomSheetDialogFragment) {
@@ -336,22 +760,18 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
             case Sensor.TYPE_ACCELEROMETER:
                 handleAccelerometer(event);
                 break;
+            case Sensor.TYPE_GYROSCOPE:
+                motionGate.onGyroscope(event.values[0], event.values[1], event.values[2], System.nanoTime());
+                break;
         }
     }
 
     private void handleLightSensor(SensorEvent event) {
-        float lux = event.values[0];
-        if (camera != null) {
-            if (lux < DARK_THRESHOLD && !isTorchOn) {
-                setTorchState(true);
-            } else if (lux >= DARK_THRESHOLD && isTorchOn) {
-                setTorchState(false);
-            }
-            Log.d("LightSensor", "Lux value: " + lux);
-        }
+        torchController.onAmbientLight(event.values[0]);
     }
 
     private void handleAccelerometer(SensorEvent event) {
+        motionGate.onAccelerometer(event.values[0], event.values[1], event.values[2], System.nanoTime());
         long currentTime = System.currentTimeMillis();
         if ((currentTime - lastShakeTime) > SHAKE_TIMEOUT) {
             float x = event.values[0];
@@ -390,32 +810,18 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
         if (lightSensor != null) {
             sensorManager.registerListener(this, lightSensor, SensorManager.SENSOR_DELAY_UI);
             Log.d("SensorManager", "Real light sensor registered");
-        } else if(simulateLux) {
-            Log.d("SensorManager", "No light sensor found, starting simulation...");
-            simulateLuxValues();
         }
+        motionGate.reset();
+        // The open scanner's metrics get the parse times of the lookups it starts
+        productRepository.setScanMetrics(scanMetrics);
+        // Game rate (~50Hz) so the motion gate sees movement within a frame or two
         if (accelerometerSensor != null) {
-            sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_NORMAL);
+            sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_GAME);
             Log.d("SensorManager", "Accelerometer registered");
         }
-    }
-
-    private void simulateLuxValues() {
-        final float[] testLuxValues = {5f, 50f, 10f, 100f};
-        final int delay = 2000;
-        android.os.Handler handler = new android.os.Handler(getMainLooper());
-        for (int i = 0; i < testLuxValues.length; i++) {
-            float lux = testLuxValues[i];
-            handler.postDelayed(() -> {
-                Log.d("LightSensor", "Simulated Lux value: " + lux);
-                if (camera != null) {
-                    if (lux < DARK_THRESHOLD && !isTorchOn) {
-                        setTorchState(true);
-                    } else if (lux >= DARK_THRESHOLD && isTorchOn) {
-                        setTorchState(false);
-                    }
-                }
-            }, (long) i * delay);
+        if (gyroscopeSensor != null) {
+            sensorManager.registerListener(this, gyroscopeSensor, SensorManager.SENSOR_DELAY_GAME);
+            Log.d("SensorManager", "Gyroscope registered");
         }
     }
 
@@ -429,12 +835,24 @@ public class CameraScannerActivity extends AppCompatActivity implements ProductN
 
         sensorManager.unregisterListener(this);
         Log.d("SensorManager", "All sensors unregistered");
+        Log.d("FrameScheduler", frameScheduler.toString() + " bufferAllocations=" + framePool.getAllocations());
+        Log.d("MotionGate", motionGate.toString());
+        Log.d("ScannerDebug", "Reads rejected by check digit: " + scanPipeline.getRejectedReads());
+        Log.d("FocusFilter", focusFilter.toString());
+        Log.d("TorchController", torchController.toString());
+        Log.d("ApiClient", ApiClient.getConnectionStats().toString());
+        Log.d("ProductRepository", productRepository.toString());
+        dumpScanMetrics();
         setTorchState(false);
+        torchController.reset();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        inventoryHandler.removeCallbacks(inventoryFlushRunnable);
         cameraExecutor.shutdown();
+        decodeExecutor.shutdownNow();
+        scanPipeline.setDecoder(null);
     }
 }
\ No newline at end of file
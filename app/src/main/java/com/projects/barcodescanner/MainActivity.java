@@ -33,13 +33,13 @@ import com.google.android.gms.tasks.CancellationTokenSource;
 import com.google.android.material.tabs.TabLayout;
 import com.projects.barcodescanner.adapter.DepthPageTransformer;
 import com.projects.barcodescanner.adapter.ProductAdapter;
+import com.projects.barcodescanner.db.ApiClient;
+import com.projects.barcodescanner.db.ProductFeed;
+import com.projects.barcodescanner.db.ProductSync;
 import com.projects.barcodescanner.db.SupabaseAuth;
-import com.projects.barcodescanner.db.SupabaseService;
-import com.projects.barcodescanner.model.Product;
+import com.projects.barcodescanner.scanner.ScannerWarmup;
 
 import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -66,6 +66,8 @@ public class MainActivity extends AppCompatActivity {
 
     // Adapters & Data
     private ProductAdapter productAdapter;
+    private ProductFeed productFeed;
+    private String currentCountry;
     private SharedPreferences sharedPreferences;
 
     // Location Services
@@ -77,6 +79,9 @@ public class MainActivity extends AppCompatActivity {
     private Runnable autoScrollRunnable;
     private static final long AUTO_SCROLL_DELAY = 4000;
 
+    // Products per page of the carousel feed; a few pages around the shown card stay in memory
+    private static final int FEED_PAGE_SIZE = 20;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -86,11 +91,25 @@ public class MainActivity extends AppCompatActivity {
         setupListeners();
         setupViewPager();
 
+        // Camera provider, decoder and ML Kit model load in the background so the scanner opens warm
+        ScannerWarmup.start(this);
+        // Product lookups from the scanner then find a warm TLS connection in the shared pool
+        ApiClient.preconnect();
+        // Pushes local product edits and refreshes the on-device catalog
+        ProductSync.start(this);
+
         // Initialize auto-scroll handler and the runnable
         autoScrollHandler = new Handler(Looper.getMainLooper());
         autoScrollRunnable = () -> {
-            if (productAdapter.getRealCount() > 0) {
-                productsViewPager.setCurrentItem(productsViewPager.getCurrentItem() + 1, true);
+            int next = productsViewPager.getCurrentItem() + 1;
+            if (next < productAdapter.getItemCount()) {
+                productsViewPager.setCurrentItem(next, true);
+            } else if (productFeed != null && productFeed.isComplete()) {
+                // Back to the first card, so the carousel keeps going round
+                productsViewPager.setCurrentItem(0, false);
+                startAutoScroll();
+            } else {
+                startAutoScroll(); // The next page is still loading
             }
         };
 
@@ -118,6 +137,14 @@ public class MainActivity extends AppCompatActivity {
         startAutoScroll();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (productFeed != null) {
+            productFeed.close();
+        }
+    }
+
     private void initializeViews() {
         welcomeTextView = findViewById(R.id.welcomeTextView);
         locationAutoCompleteTextView = findViewById(R.id.locationAutoCompleteTextView);
@@ -151,11 +178,10 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onPageSelected(int position) {
                 super.onPageSelected(position);
-                if (productAdapter.getRealCount() > 0) {
-                    int realPosition = position % productAdapter.getRealCount();
-                    if (pageIndicator.getSelectedTabPosition() != realPosition) {
-                        pageIndicator.selectTab(pageIndicator.getTabAt(realPosition));
-                    }
+                if (productFeed != null && productAdapter.getItemCount() > 0) {
+                    // Prefetches the next page near the end and drops pages far behind
+                    productFeed.onPositionShown(position);
+                    updatePageIndicator(position);
                 }
             }
 
@@ -267,67 +293,80 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        SupabaseService.getProductsByLocation(country, new Callback() {
-            @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                runOnUiThread(() -> {
-                    showLoading(false);
-                    Toast.makeText(MainActivity.this, "Error fetching products.", Toast.LENGTH_SHORT).show();
-                    updateProductViewVisibility(false);
-                });
-            }
-
-            @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                List<Product> productList = new ArrayList<>();
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        JSONArray jsonArray = new JSONArray(response.body().string());
-                        for (int i = 0; i < jsonArray.length(); i++) {
-                            JSONObject obj = jsonArray.getJSONObject(i);
-                            Product p = new Product();
-                            p.setProductName(obj.optString("product_name"));
-                            p.setBarcode(obj.optString("barcode"));
-                            p.setImageUrl(obj.optString("image_url"));
-                            p.setEdible(obj.optBoolean("is_edible"));
-                            productList.add(p);
+        currentCountry = country;
+        if (productFeed != null) {
+            productFeed.close(); // Drops pages of the previous country still on their way
+        }
+        // Only the first page is needed to show something; the rest follows as the user scrolls
+        productFeed = ProductFeed.forLocation(this, country, ProductAdapter.COLUMNS, FEED_PAGE_SIZE,
+                new ProductFeed.Listener() {
+                    @Override
+                    public void onItemsInserted(int start, int count) {
+                        productAdapter.notifyItemRangeInserted(start, count);
+                        if (start == 0) {
+                            showFirstPage();
+                        } else {
+                            updatePageIndicator(productsViewPager.getCurrentItem());
                         }
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error parsing products JSON", e);
                     }
-                }
 
-                runOnUiThread(() -> {
-                    showLoading(false);
-                    productAdapter.setProducts(productList);
-                    updateProductViewVisibility(!productList.isEmpty());
+                    @Override
+                    public void onItemsChanged(int start, int count) {
+                        productAdapter.notifyItemRangeChanged(start, count);
+                    }
 
-                    if (!productList.isEmpty()) {
-                        // Setup indicator tabs
-                        pageIndicator.removeAllTabs();
-                        for (int i = 0; i < productAdapter.getRealCount(); i++) {
-                            pageIndicator.addTab(pageIndicator.newTab());
+                    @Override
+                    public void onError(IOException e, boolean empty) {
+                        if (!empty) {
+                            return; // The page is fetched again when it is scrolled to
                         }
-
-                        // Set initial position for infinite loop
-                        int itemCount = 1000; // Must match adapter
-                        int initialPosition = (itemCount / 2) - ((itemCount / 2) % productList.size());
-                        productsViewPager.setCurrentItem(initialPosition, false);
-
-                        // Start auto-scroll AFTER everything is ready
-                        startAutoScroll();
-                    } else {
-                        // Ensure tabs are cleared if no products are found
-                        pageIndicator.removeAllTabs();
+                        showLoading(false);
+                        Toast.makeText(MainActivity.this, "Error fetching products.", Toast.LENGTH_SHORT).show();
+                        updateProductViewVisibility(false);
                     }
                 });
+        productAdapter.setFeed(productFeed);
+        productFeed.start();
+    }
+
+    private void showFirstPage() {
+        showLoading(false);
+        boolean hasProducts = productAdapter.getItemCount() > 0;
+        updateProductViewVisibility(hasProducts);
+        pageIndicator.removeAllTabs();
+
+        if (hasProducts) {
+            productsViewPager.setCurrentItem(0, false);
+            productFeed.onPositionShown(0);
+            updatePageIndicator(0);
+
+            // Start auto-scroll AFTER everything is ready
+            startAutoScroll();
+        }
+    }
+
+    /**
+     * Shows one dot per card of the current page; one per product would not fit thousands.
+     */
+    private void updatePageIndicator(int position) {
+        int pageSize = productFeed.getPageSize();
+        int pageStart = position - position % pageSize;
+        int dots = Math.min(pageSize, productAdapter.getItemCount() - pageStart);
+        if (pageIndicator.getTabCount() != dots) {
+            pageIndicator.removeAllTabs();
+            for (int i = 0; i < dots; i++) {
+                pageIndicator.addTab(pageIndicator.newTab(), false);
             }
-        });
+        }
+        TabLayout.Tab tab = pageIndicator.getTabAt(position - pageStart);
+        if (tab != null && !tab.isSelected()) {
+            pageIndicator.selectTab(tab);
+        }
     }
 
     private void startAutoScroll() {
         stopAutoScroll(); // Prevent multiple runnables
-        if (productAdapter.getRealCount() > 0) {
+        if (productAdapter.getItemCount() > 0) {
             autoScrollHandler.postDelayed(autoScrollRunnable, AUTO_SCROLL_DELAY);
         }
     }
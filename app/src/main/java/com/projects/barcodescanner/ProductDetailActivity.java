@@ -10,34 +10,27 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.IntentCompat;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
-import com.projects.barcodescanner.db.SupabaseService;
+import com.projects.barcodescanner.db.ProductJson;
+import com.projects.barcodescanner.db.ProductRepository;
 import com.projects.barcodescanner.model.Product;
 import com.squareup.picasso.Picasso;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.Response;
-
 public class ProductDetailActivity extends AppCompatActivity {
 
     private static final String TAG = "ProductDetailActivity";
 
+    /** A {@link Product} the caller already has; it is shown at once instead of being fetched. */
+    public static final String EXTRA_PRODUCT = "PRODUCT";
+
     // UI Views
     private ImageView productImageView;
     private TextView productNameTextView, brandTextView, priceTextView, countryFlagTextView,
@@ -56,7 +49,14 @@ public class ProductDetailActivity extends AppCompatActivity {
         initializeViews();
 
         String barcode = getIntent().getStringExtra("PRODUCT_BARCODE");
-        if (barcode != null && !barcode.isEmpty()) {
+        Product product = IntentCompat.getParcelableExtra(getIntent(), EXTRA_PRODUCT, Product.class);
+        if (product != null) {
+            populateUi(product);
+            if (barcode != null && !barcode.isEmpty()) {
+                // Just cached by the scan, so this is a memory hit unless the entry went stale
+                refreshProductDetails(barcode, product);
+            }
+        } else if (barcode != null && !barcode.isEmpty()) {
             fetchProductDetails(barcode);
         } else {
             Toast.makeText(this, "Error: Barcode not found.", Toast.LENGTH_LONG).show();
@@ -92,97 +92,56 @@ public class ProductDetailActivity extends AppCompatActivity {
 
     private void fetchProductDetails(String barcode) {
         progressBar.setVisibility(View.VISIBLE);
-        SupabaseService.getProductByBarcode(barcode, new Callback() {
+        ProductRepository.getInstance(this).getProduct(barcode, new ProductRepository.ProductCallback() {
             @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                Log.e(TAG, "onFailure: Failed to fetch product details.", e);
-                handleNetworkError();
+            public void onProductFound(Product product) {
+                runOnUiThread(() -> populateUi(product));
             }
 
             @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                final String responseBody = response.body().string();
-                if (response.isSuccessful()) {
-                    try {
-                        JsonArray jsonArray = JsonParser.parseString(responseBody).getAsJsonArray();
-                        if (jsonArray.size() > 0) {
-                            JsonObject productObject = jsonArray.get(0).getAsJsonObject();
-                            final Product product = parseProduct(productObject);
-                            runOnUiThread(() -> populateUi(product));
-                        } else {
-                            handleProductNotFound();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "onResponse: Error parsing product JSON", e);
-                        handleDataError();
-                    }
-                } else {
-                    Log.e(TAG, "onResponse: API call failed. Code: " + response.code());
-                    handleDataError();
-                }
+            public void onProductNotFound() {
+                handleProductNotFound();
             }
-        });
-    }
-
-    private Product parseProduct(JsonObject jsonObject) {
-        Product product = new Product();
-        Gson gson = new Gson();
-
-        product.setProductName(getString(jsonObject, "product_name"));
-        product.setBrand(getString(jsonObject, "brand"));
-        product.setDescription(getString(jsonObject, "description"));
-        product.setCategory(getString(jsonObject, "category"));
-        product.setPrice(getString(jsonObject, "price"));
-        product.setCurrency(getString(jsonObject, "currency"));
-        product.setBarcode(getString(jsonObject, "barcode"));
-        product.setEdible(getBool(jsonObject, "is_edible"));
-        product.setManufacturedIn(getString(jsonObject, "manufactured_in"));
-        product.setImageUrl(getString(jsonObject, "image_url"));
-        product.setLocation(getString(jsonObject, "location"));
 
-        product.setSpecifications(parseStringList(gson, jsonObject, "specifications"));
-        product.setHealthBenefits(parseStringList(gson, jsonObject, "health_benefits"));
-        product.setIngredients(parseStringList(gson, jsonObject, "ingredients"));
-        product.setAvailableStores(parseStringList(gson, jsonObject, "available_stores"));
-
-        return product;
-    }
-
-    private String getString(JsonObject obj, String key) {
-        return obj.has(key) && !obj.get(key).isJsonNull() ? obj.get(key).getAsString() : "";
-    }
-
-    private boolean getBool(JsonObject obj, String key) {
-        return obj.has(key) && !obj.get(key).isJsonNull() && obj.get(key).getAsBoolean();
+            @Override
+            public void onError(IOException e) {
+                Log.e(TAG, "onError: Failed to fetch product details.", e);
+                handleNetworkError();
+            }
+        });
     }
 
-    private List<String> parseStringList(Gson gson, JsonObject obj, String key) {
-        if (!obj.has(key) || obj.get(key).isJsonNull()) {
-            return Collections.emptyList();
-        }
-
-        try {
-            // Case 1: Supabase returns a proper JSON array (ideal case)
-            if (obj.get(key).isJsonArray()) {
-                Type listType = new TypeToken<List<String>>() {}.getType();
-                return gson.fromJson(obj.get(key).getAsJsonArray(), listType);
+    /**
+     * Updates a product that is already on screen. Errors are ignored, since there is something to
+     * show already.
+     */
+    private void refreshProductDetails(String barcode, Product shown) {
+        JsonObject shownJson = ProductJson.toJson(shown);
+        ProductRepository.getInstance(this).getProduct(barcode, new ProductRepository.ProductCallback() {
+            @Override
+            public void onProductFound(Product product) {
+                if (ProductJson.toJson(product).equals(shownJson)) {
+                    return;
+                }
+                runOnUiThread(() -> {
+                    if (!isFinishing()) {
+                        populateUi(product);
+                    }
+                });
             }
 
-            // Case 2: Supabase stored array as a string -> parse string into JSON
-            String jsonString = obj.get(key).getAsString();
-            JsonArray jsonArray = JsonParser.parseString(jsonString).getAsJsonArray();
-
-            Type listType = new TypeToken<List<String>>() {}.getType();
-            return gson.fromJson(jsonArray, listType);
+            @Override
+            public void onProductNotFound() {
+                handleProductNotFound();
+            }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse list for key: " + key + " | Value: " + obj.get(key), e);
-            return Collections.emptyList();
-        }
+            @Override
+            public void onError(IOException e) {
+                Log.w(TAG, "Refreshing product details failed: " + e.getMessage());
+            }
+        });
     }
 
-
-
     private void populateUi(Product product) {
         progressBar.setVisibility(View.GONE);
 
@@ -273,11 +232,4 @@ public class ProductDetailActivity extends AppCompatActivity {
             Toast.makeText(ProductDetailActivity.this, "Product data not found in database.", Toast.LENGTH_LONG).show();
         });
     }
-
-    private void handleDataError() {
-        runOnUiThread(() -> {
-            progressBar.setVisibility(View.GONE);
-            Toast.makeText(ProductDetailActivity.this, "Error reading product data.", Toast.LENGTH_SHORT).show();
-        });
-    }
 }
\ No newline at end of file
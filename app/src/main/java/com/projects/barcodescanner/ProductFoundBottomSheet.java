@@ -13,8 +13,10 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.os.BundleCompat;
 
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
+import com.projects.barcodescanner.model.Product;
 import com.squareup.picasso.Picasso;
 
 public class ProductFoundBottomSheet extends BottomSheetDialogFragment {
@@ -28,17 +30,25 @@ public class ProductFoundBottomSheet extends BottomSheetDialogFragment {
     private static final String ARG_BARCODE = "barcode_arg";
     private static final String ARG_DESCRIPTION = "description_arg";
     private static final String ARG_IMAGE_URL = "image_url_arg";
+    private static final String ARG_PRODUCT = "product_arg";
 
     private OnScanCompletionListener completionListener;
 
-    // --- UPDATED: newInstance now accepts a 'name' parameter ---
-    public static ProductFoundBottomSheet newInstance(String barcode, String name, String description, String imageUrl) {
+    /**
+     * Keeps the whole product, so "View all" opens the detail screen without fetching it again.
+     */
+    public static ProductFoundBottomSheet newInstance(String barcode, Product product) {
         ProductFoundBottomSheet fragment = new ProductFoundBottomSheet();
+        String name = product.getProductName();
+        String description = product.getDescription();
+        String imageUrl = product.getImageUrl();
         Bundle args = new Bundle();
         args.putString(ARG_BARCODE, barcode);
-        args.putString(ARG_NAME, name); // Add name to the bundle
-        args.putString(ARG_DESCRIPTION, description);
-        args.putString(ARG_IMAGE_URL, imageUrl);
+        args.putString(ARG_NAME, name == null || name.isEmpty() ? "Product Name" : name);
+        args.putString(ARG_DESCRIPTION, description == null || description.isEmpty()
+                ? "No description available" : description);
+        args.putString(ARG_IMAGE_URL, imageUrl == null || imageUrl.isEmpty() ? null : imageUrl);
+        args.putParcelable(ARG_PRODUCT, product);
         fragment.setArguments(args);
         return fragment;
     }
@@ -92,6 +102,10 @@ public class ProductFoundBottomSheet extends BottomSheetDialogFragment {
                 String barcode = getArguments().getString(ARG_BARCODE);
                 Intent intent = new Intent(getContext(), ProductDetailActivity.class);
                 intent.putExtra("PRODUCT_BARCODE", barcode);
+                Product product = BundleCompat.getParcelable(getArguments(), ARG_PRODUCT, Product.class);
+                if (product != null) {
+                    intent.putExtra(ProductDetailActivity.EXTRA_PRODUCT, product);
+                }
                 startActivity(intent);
                 dismiss(); // Close the bottom sheet after starting the new activity
             }
@@ -119,6 +119,14 @@ public class ScannerOverlayView extends View {
         }
     }
 
+    /**
+     * Returns a copy of the viewfinder box in view pixels, or null before the first layout.
+     */
+    @Nullable
+    public RectF getBoxRect() {
+        return boxRect != null ? new RectF(boxRect) : null;
+    }
+
     // Public methods to control the animation from the Activity
     public void startAnimation() {
         if (laserAnimator != null && !laserAnimator.isRunning()) {
@@ -0,0 +1,74 @@
+package com.projects.barcodescanner.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.projects.barcodescanner.R;
+import com.projects.barcodescanner.scanner.InventorySession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running list of an inventory session shown over the camera preview.
+ */
+public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.InventoryViewHolder> {
+
+    private List<InventorySession.Item> items = new ArrayList<>();
+
+    @NonNull
+    @Override
+    public InventoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_inventory_row, parent, false);
+        return new InventoryViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull InventoryViewHolder holder, int position) {
+        holder.bind(items.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public void setItems(List<InventorySession.Item> items) {
+        this.items = items;
+        notifyDataSetChanged();
+    }
+
+    static class InventoryViewHolder extends RecyclerView.ViewHolder {
+        private final TextView nameTextView;
+        private final TextView barcodeTextView;
+        private final TextView countTextView;
+
+        public InventoryViewHolder(@NonNull View itemView) {
+            super(itemView);
+            nameTextView = itemView.findViewById(R.id.inventoryNameTextView);
+            barcodeTextView = itemView.findViewById(R.id.inventoryBarcodeTextView);
+            countTextView = itemView.findViewById(R.id.inventoryCountTextView);
+        }
+
+        public void bind(InventorySession.Item item) {
+            switch (item.getStatus()) {
+                case FOUND:
+                    nameTextView.setText(item.getProductName());
+                    break;
+                case NOT_FOUND:
+                    nameTextView.setText("Not in database");
+                    break;
+                default:
+                    nameTextView.setText("Looking up…");
+                    break;
+            }
+            barcodeTextView.setText(item.getBarcode());
+            countTextView.setText("×" + item.getCount());
+        }
+    }
+}
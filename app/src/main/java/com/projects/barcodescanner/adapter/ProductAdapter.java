@@ -19,16 +19,16 @@ import com.google.zxing.BarcodeFormat;
 import com.journeyapps.barcodescanner.BarcodeEncoder;
 import com.projects.barcodescanner.ProductDetailActivity; // <-- Import your new Activity
 import com.projects.barcodescanner.R;
+import com.projects.barcodescanner.db.ProductFeed;
 import com.projects.barcodescanner.model.Product;
 import com.squareup.picasso.Picasso;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
 
-    private List<Product> productList = new ArrayList<>();
-    private static final int ITEM_COUNT = 1000; // Use a large but reasonable number
+    private ProductFeed feed;
+
+    // The columns a carousel card binds; queries for the carousel should ask for no more
+    public static final String[] COLUMNS = {"product_name", "barcode", "image_url", "is_edible"};
 
     @NonNull
     @Override
@@ -39,27 +39,28 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        if (productList.isEmpty()) {
-            return;
+        Product product = feed != null ? feed.get(position) : null;
+        if (product != null) {
+            holder.bind(product);
+        } else {
+            // Its page was dropped to save memory and is on its way back
+            holder.bindPlaceholder();
         }
-        Product product = productList.get(position % productList.size());
-        holder.bind(product);
     }
 
     @Override
     public int getItemCount() {
-        return productList.isEmpty() ? 0 : ITEM_COUNT;
+        return feed != null ? feed.getCount() : 0;
     }
 
-    public void setProducts(List<Product> products) {
-        this.productList = products;
+    /**
+     * Shows the products of a feed; the caller forwards the feed's changes to this adapter.
+     */
+    public void setFeed(ProductFeed feed) {
+        this.feed = feed;
         notifyDataSetChanged();
     }
 
-    public int getRealCount() {
-        return productList.size();
-    }
-
     static class ProductViewHolder extends RecyclerView.ViewHolder {
         private ImageView productImageView;
         private TextView productNameTextView;
@@ -102,6 +103,8 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                 edibleStatusTextView.setTextColor(ContextCompat.getColor(context, R.color.design_default_color_error));
             }
 
+            viewMoreButton.setEnabled(true);
+            barcodeImageView.setVisibility(View.VISIBLE);
             try {
                 BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
                 Bitmap bitmap = barcodeEncoder.encodeBitmap(
@@ -122,5 +125,15 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                 context.startActivity(intent);
             });
         }
+
+        void bindPlaceholder() {
+            Picasso.get().cancelRequest(productImageView);
+            productImageView.setImageResource(R.drawable.product_default);
+            productNameTextView.setText("");
+            barcodeNumberTextView.setText("");
+            edibleStatusTextView.setText("");
+            barcodeImageView.setVisibility(View.INVISIBLE);
+            viewMoreButton.setEnabled(false);
+        }
     }
 }
\ No newline at end of file
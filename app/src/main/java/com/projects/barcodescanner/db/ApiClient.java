@@ -0,0 +1,229 @@
+package com.projects.barcodescanner.db;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.projects.barcodescanner.constants.Constants;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The one HTTP client the app uses for every backend call. All variants share a connection pool and
+ * dispatcher, so a TLS connection opened on the home screen is reused by the scanner, and
+ * HTTP/2 lets concurrent lookups to Supabase share a single connection.
+ *
+ * Timeouts are per kind of endpoint: {@link #queries()} for small PostgREST and auth requests,
+ * {@link #uploads()} for storage uploads and {@link #externalApis()} for slow third-party search
+ * APIs. Requests to the Supabase host get the {@code apikey} and {@code Authorization} headers
+ * added unless they set their own.
+ */
+public final class ApiClient {
+
+    private static final String TAG = "ApiClient";
+
+    private static final int DEFAULT_MAX_REQUESTS = 32;
+    // HTTP/2 multiplexes these over one connection, so this is a concurrency cap, not a socket count
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 8;
+
+    private static final Dispatcher dispatcher = new Dispatcher();
+    private static final ConnectionStats stats = new ConnectionStats();
+
+    private static final OkHttpClient base;
+    private static final OkHttpClient queries;
+    private static final OkHttpClient uploads;
+    private static final OkHttpClient externalApis;
+
+    static {
+        dispatcher.setMaxRequests(DEFAULT_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS_PER_HOST);
+        base = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(new SupabaseHeadersInterceptor())
+                .eventListener(stats)
+                .build();
+        // newBuilder() keeps the pool, dispatcher, interceptor and listener
+        queries = base.newBuilder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                .callTimeout(30, TimeUnit.SECONDS)
+                .build();
+        uploads = base.newBuilder()
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .callTimeout(120, TimeUnit.SECONDS)
+                .build();
+        externalApis = base.newBuilder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .callTimeout(90, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private ApiClient() {
+    }
+
+    /** For PostgREST queries, RPCs and auth: small payloads, fail fast. */
+    public static OkHttpClient queries() {
+        return queries;
+    }
+
+    /** For file uploads to Supabase Storage. */
+    public static OkHttpClient uploads() {
+        return uploads;
+    }
+
+    /** For third-party APIs that may take tens of seconds to answer. */
+    public static OkHttpClient externalApis() {
+        return externalApis;
+    }
+
+    /**
+     * Changes how many calls may run at once, in total and per host. Calls beyond the limits wait
+     * in the dispatcher's queue.
+     */
+    public static void setDispatcherLimits(int maxRequests, int maxRequestsPerHost) {
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    /**
+     * Opens the connection to Supabase in the background so the first real request skips the
+     * DNS lookup and TLS handshake.
+     */
+    public static void preconnect() {
+        HttpUrl url = HttpUrl.parse(Constants.SUPABASE_URL + "/rest/v1/");
+        if (url == null) {
+            return;
+        }
+        queries.newCall(new Request.Builder().url(url).head().build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.d(TAG, "Preconnect failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                response.close();
+            }
+        });
+    }
+
+    public static ConnectionStats getConnectionStats() {
+        return stats;
+    }
+
+    /**
+     * Adds the Supabase credentials to requests for the Supabase host that do not carry their own.
+     */
+    private static class SupabaseHeadersInterceptor implements Interceptor {
+
+        private final String supabaseHost;
+
+        SupabaseHeadersInterceptor() {
+            HttpUrl url = HttpUrl.parse(Constants.SUPABASE_URL);
+            supabaseHost = url != null ? url.host() : null;
+        }
+
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Request request = chain.request();
+            if (supabaseHost == null || !supabaseHost.equals(request.url().host())) {
+                return chain.proceed(request);
+            }
+            Request.Builder builder = request.newBuilder();
+            if (request.header("apikey") == null) {
+                builder.header("apikey", Constants.SUPABASE_API_KEY);
+            }
+            if (request.header("Authorization") == null) {
+                builder.header("Authorization", "Bearer " + Constants.SUPABASE_API_KEY);
+            }
+            return chain.proceed(builder.build());
+        }
+    }
+
+    /**
+     * Counts calls, new connections and TLS handshakes across all clients, to show how often a
+     * request paid for a fresh connection instead of reusing a pooled one.
+     */
+    public static class ConnectionStats extends EventListener {
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong connects = new AtomicLong();
+        private final AtomicLong connectNanos = new AtomicLong();
+        private final AtomicLong handshakes = new AtomicLong();
+        private final AtomicLong handshakeNanos = new AtomicLong();
+        // Only one connect or handshake is in progress per call at a time
+        private final ThreadLocal<long[]> startedAt = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[2];
+            }
+        };
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+            startedAt.get()[0] = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy, Protocol protocol) {
+            connects.incrementAndGet();
+            connectNanos.addAndGet(System.nanoTime() - startedAt.get()[0]);
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            startedAt.get()[1] = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+            handshakes.incrementAndGet();
+            handshakeNanos.addAndGet(System.nanoTime() - startedAt.get()[1]);
+        }
+
+        public long getCalls() { return calls.get(); }
+        public long getConnects() { return connects.get(); }
+        public long getHandshakes() { return handshakes.get(); }
+
+        @Override
+        public String toString() {
+            long c = connects.get();
+            long h = handshakes.get();
+            return String.format(Locale.US, "http calls=%d newConnections=%d (avg %.1fms) tlsHandshakes=%d (avg %.1fms)",
+                    calls.get(), c, c == 0 ? 0 : connectNanos.get() / 1e6 / c,
+                    h, h == 0 ? 0 : handshakeNanos.get() / 1e6 / h);
+        }
+    }
+}
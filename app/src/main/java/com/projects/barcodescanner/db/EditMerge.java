@@ -0,0 +1,45 @@
+package com.projects.barcodescanner.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+/**
+ * The last-writer-wins rule {@link LocalProductStore} merges server rows and local edits by, per
+ * field, kept apart from SQLite so it can be checked on the JVM.
+ *
+ * Times are epoch milliseconds; a server row without {@code updated_at} has time 0, which nothing
+ * is older than.
+ */
+final class EditMerge {
+
+    private EditMerge() {
+    }
+
+    /**
+     * @return true if a server row replaces the stored copy, false if it is an older version that
+     *         arrived late
+     */
+    static boolean replacesStoredRow(long incomingUpdatedAt, long storedUpdatedAt) {
+        return incomingUpdatedAt <= 0 || incomingUpdatedAt >= storedUpdatedAt;
+    }
+
+    /**
+     * @return true if a local edit outlives a server row stored after it was made; an edit made no
+     *         later than the row is superseded by it
+     */
+    static boolean editSurvives(long editedAtMillis, long rowUpdatedAt) {
+        return rowUpdatedAt <= 0 || editedAtMillis > rowUpdatedAt;
+    }
+
+    /**
+     * Lays the edited fields over a server row, in place.
+     */
+    static JsonObject overlay(JsonObject row, Map<String, JsonElement> edits) {
+        for (Map.Entry<String, JsonElement> edit : edits.entrySet()) {
+            row.add(edit.getKey(), edit.getValue());
+        }
+        return row;
+    }
+}
@@ -0,0 +1,41 @@
+package com.projects.barcodescanner.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The callers waiting on requests that are running, by key, so that concurrent callers for the
+ * same key share one request: the first to join starts it, the rest wait for its result. Thread
+ * safe.
+ */
+final class InFlightRequests<W> {
+
+    private final Map<String, List<W>> waiting = new HashMap<>();
+
+    /**
+     * Adds a caller to the request for a key.
+     * @return true if no request for the key was running, so the caller has to start one
+     */
+    synchronized boolean join(String key, W waiter) {
+        List<W> waiters = waiting.get(key);
+        if (waiters != null) {
+            waiters.add(waiter);
+            return false;
+        }
+        waiters = new ArrayList<>(2);
+        waiters.add(waiter);
+        waiting.put(key, waiters);
+        return true;
+    }
+
+    /**
+     * Ends the request for a key; the next caller to join starts a new one.
+     * @return everyone who waited on it, in the order they joined
+     */
+    synchronized List<W> finish(String key) {
+        List<W> waiters = waiting.remove(key);
+        return waiters != null ? waiters : new ArrayList<>();
+    }
+}
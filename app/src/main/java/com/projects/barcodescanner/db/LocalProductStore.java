@@ -0,0 +1,346 @@
+package com.projects.barcodescanner.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.projects.barcodescanner.model.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The on-device copy of the {@code products} table, so barcode and location lookups work without
+ * a network round trip. {@link ProductSync} fills it in the background and every product fetched
+ * over the network is written through.
+ *
+ * Rows are kept as the JSON the server sent, keyed by canonical barcode. Local edits are kept
+ * separately, one row per field with the time it was made, and laid over the server row when it is
+ * read. Merging is last-writer-wins per field: a server row newer than an edit replaces that field,
+ * an older one leaves the edit in place until it has been pushed.
+ *
+ * For each synced scope (a country) the store keeps a watermark, the position of the last row
+ * synced in {@code updated_at, barcode} order, so the next sync only asks for what changed since.
+ *
+ * SQLite access is blocking; call everything here off the main thread.
+ */
+public class LocalProductStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "products.db";
+    // 2: sync watermarks
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_PRODUCTS = "products";
+    private static final String TABLE_EDITS = "product_edits";
+    private static final String TABLE_WATERMARKS = "sync_watermarks";
+
+    private static LocalProductStore instance;
+
+    /** Local edits of one product that have not reached the server yet. */
+    public static final class PendingEdit {
+        public final String key;
+        public final String barcode;
+        public final JsonObject fields;
+        // Newest edit in this batch; edits made after it are kept when the batch is cleared
+        public final long editedAtMillis;
+
+        PendingEdit(String key, String barcode, JsonObject fields, long editedAtMillis) {
+            this.key = key;
+            this.barcode = barcode;
+            this.fields = fields;
+            this.editedAtMillis = editedAtMillis;
+        }
+    }
+
+    private LocalProductStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized LocalProductStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalProductStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_PRODUCTS + " ("
+                + "barcode_key TEXT PRIMARY KEY, "
+                + "location TEXT, "
+                + "updated_at INTEGER NOT NULL, "
+                + "data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX products_location ON " + TABLE_PRODUCTS + " (location)");
+        db.execSQL("CREATE TABLE " + TABLE_EDITS + " ("
+                + "barcode_key TEXT NOT NULL, "
+                + "field TEXT NOT NULL, "
+                + "value TEXT, "
+                + "edited_at INTEGER NOT NULL, "
+                + "PRIMARY KEY (barcode_key, field))");
+        createWatermarks(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createWatermarks(db);
+        }
+    }
+
+    private static void createWatermarks(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_WATERMARKS + " ("
+                + "scope TEXT PRIMARY KEY, "
+                + "updated_at TEXT NOT NULL, "
+                + "barcode TEXT NOT NULL)");
+    }
+
+    /**
+     * @return the product with local edits applied, or null if it is not stored
+     */
+    public Product getProduct(String key) {
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_PRODUCTS, new String[]{"data"}, "barcode_key = ?",
+                new String[]{key}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            JsonObject row = JsonParser.parseString(cursor.getString(0)).getAsJsonObject();
+            applyEdits(db, key, row);
+            return ProductJson.fromJson(row);
+        }
+    }
+
+    /**
+     * @param afterKey the barcode key of the last product of the page before, or null for the first page
+     * @return up to {@code limit} products, ordered by barcode key
+     */
+    public List<Product> getProductsByLocation(String location, String afterKey, int limit) {
+        SQLiteDatabase db = getReadableDatabase();
+        List<Product> products = new ArrayList<>();
+        String selection = afterKey != null ? "location = ? AND barcode_key > ?" : "location = ?";
+        String[] args = afterKey != null ? new String[]{location, afterKey} : new String[]{location};
+        try (Cursor cursor = db.query(TABLE_PRODUCTS, new String[]{"barcode_key", "data"}, selection,
+                args, null, null, "barcode_key", Integer.toString(limit))) {
+            while (cursor.moveToNext()) {
+                JsonObject row = JsonParser.parseString(cursor.getString(1)).getAsJsonObject();
+                applyEdits(db, cursor.getString(0), row);
+                products.add(ProductJson.fromJson(row));
+            }
+        }
+        return products;
+    }
+
+    private void applyEdits(SQLiteDatabase db, String key, JsonObject row) {
+        Map<String, JsonElement> edits = new LinkedHashMap<>();
+        try (Cursor cursor = db.query(TABLE_EDITS, new String[]{"field", "value"}, "barcode_key = ?",
+                new String[]{key}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                edits.put(cursor.getString(0), JsonParser.parseString(cursor.getString(1)));
+            }
+        }
+        EditMerge.overlay(row, edits);
+    }
+
+    /**
+     * Stores rows as the server sent them. A row older than the stored copy is ignored, and local
+     * edits older than an incoming row are dropped in its favour. Tombstones ({@code deleted} set)
+     * remove the product along with its edits.
+     */
+    public void putRemoteRows(Iterable<JsonElement> rows) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            putRows(db, rows);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Stores one page of a delta sync and moves the scope's watermark to its last row, in one
+     * transaction, so an interrupted sync resumes after the last page it stored.
+     * @param rows rows ordered by {@code updated_at, barcode}, as {@link ProductSync} requests them
+     * @return how many stored products were added, changed or deleted
+     */
+    public int applySyncPage(String scope, JsonArray rows) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int changed = putRows(db, rows);
+            JsonObject last = rows.size() > 0 ? rows.get(rows.size() - 1).getAsJsonObject() : null;
+            if (last != null && last.has("updated_at") && !last.get("updated_at").isJsonNull()) {
+                ContentValues values = new ContentValues();
+                values.put("scope", scope);
+                values.put("updated_at", last.get("updated_at").getAsString());
+                values.put("barcode", last.get("barcode").getAsString());
+                db.insertWithOnConflict(TABLE_WATERMARKS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+            return changed;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private int putRows(SQLiteDatabase db, Iterable<JsonElement> rows) {
+        int changed = 0;
+        for (JsonElement element : rows) {
+            JsonObject row = element.getAsJsonObject();
+            String key = ProductRepository.keyFor(ProductJson.fromJson(row).getBarcode());
+            if (key.isEmpty()) {
+                continue;
+            }
+            long updatedAt = ProductJson.updatedAtMillis(row);
+            if (!EditMerge.replacesStoredRow(updatedAt, storedUpdatedAt(db, key))) {
+                continue; // A slower response carrying an older version
+            }
+            if (ProductJson.isDeleted(row)) {
+                // Deletion wins over local edits
+                changed += db.delete(TABLE_PRODUCTS, "barcode_key = ?", new String[]{key});
+                db.delete(TABLE_EDITS, "barcode_key = ?", new String[]{key});
+                continue;
+            }
+            ContentValues values = new ContentValues();
+            values.put("barcode_key", key);
+            values.put("location", row.has("location") && !row.get("location").isJsonNull()
+                    ? row.get("location").getAsString() : null);
+            values.put("updated_at", updatedAt);
+            values.put("data", row.toString());
+            db.insertWithOnConflict(TABLE_PRODUCTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            changed++;
+            if (updatedAt > 0) {
+                // The edits that do not survive the row, see EditMerge.editSurvives
+                db.delete(TABLE_EDITS, "barcode_key = ? AND edited_at <= ?",
+                        new String[]{key, Long.toString(updatedAt)});
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the {@code updated_at} and barcode of the last row synced for the scope, exactly as
+     *         the server sent them, or null if the scope was never synced
+     */
+    public String[] getWatermark(String scope) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_WATERMARKS, new String[]{"updated_at", "barcode"},
+                "scope = ?", new String[]{scope}, null, null, null)) {
+            return cursor.moveToFirst() ? new String[]{cursor.getString(0), cursor.getString(1)} : null;
+        }
+    }
+
+    /**
+     * @return every scope synced so far
+     */
+    public List<String> getSyncedScopes() {
+        List<String> scopes = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_WATERMARKS, new String[]{"scope"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                scopes.add(cursor.getString(0));
+            }
+        }
+        return scopes;
+    }
+
+    private long storedUpdatedAt(SQLiteDatabase db, String key) {
+        try (Cursor cursor = db.query(TABLE_PRODUCTS, new String[]{"updated_at"}, "barcode_key = ?",
+                new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Records edits of a stored product; they show in reads at once and are pushed by the next sync.
+     * @param fields column names and new values, as in a row of the products table
+     */
+    public void editFields(String key, JsonObject fields, long nowMillis) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+                ContentValues values = new ContentValues();
+                values.put("barcode_key", key);
+                values.put("field", field.getKey());
+                values.put("value", field.getValue().toString());
+                values.put("edited_at", nowMillis);
+                db.insertWithOnConflict(TABLE_EDITS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @return the edits not yet pushed, grouped by product, with the barcode as the server spells it
+     */
+    public List<PendingEdit> getPendingEdits() {
+        SQLiteDatabase db = getReadableDatabase();
+        Map<String, JsonObject> fieldsByKey = new LinkedHashMap<>();
+        Map<String, Long> newestByKey = new LinkedHashMap<>();
+        try (Cursor cursor = db.query(TABLE_EDITS, new String[]{"barcode_key", "field", "value", "edited_at"},
+                null, null, null, null, "barcode_key")) {
+            while (cursor.moveToNext()) {
+                String key = cursor.getString(0);
+                JsonObject fields = fieldsByKey.get(key);
+                if (fields == null) {
+                    fields = new JsonObject();
+                    fieldsByKey.put(key, fields);
+                }
+                fields.add(cursor.getString(1), JsonParser.parseString(cursor.getString(2)));
+                Long newest = newestByKey.get(key);
+                newestByKey.put(key, Math.max(newest == null ? 0 : newest, cursor.getLong(3)));
+            }
+        }
+        List<PendingEdit> edits = new ArrayList<>(fieldsByKey.size());
+        for (Map.Entry<String, JsonObject> entry : fieldsByKey.entrySet()) {
+            Product stored = getProduct(entry.getKey());
+            String barcode = stored != null ? stored.getBarcode() : entry.getKey();
+            edits.add(new PendingEdit(entry.getKey(), barcode, entry.getValue(), newestByKey.get(entry.getKey())));
+        }
+        return edits;
+    }
+
+    /**
+     * Folds pushed edits into the stored row, so reads do not flip back to the old values before the
+     * next sync brings the updated row, and forgets them. Edits made while they were being pushed stay.
+     */
+    public void clearPushedEdits(PendingEdit pushed) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            try (Cursor cursor = db.query(TABLE_PRODUCTS, new String[]{"data"}, "barcode_key = ?",
+                    new String[]{pushed.key}, null, null, null)) {
+                if (cursor.moveToFirst()) {
+                    JsonObject row = JsonParser.parseString(cursor.getString(0)).getAsJsonObject();
+                    for (Map.Entry<String, JsonElement> field : pushed.fields.entrySet()) {
+                        row.add(field.getKey(), field.getValue());
+                    }
+                    ContentValues values = new ContentValues();
+                    values.put("data", row.toString());
+                    db.update(TABLE_PRODUCTS, values, "barcode_key = ?", new String[]{pushed.key});
+                }
+            }
+            db.delete(TABLE_EDITS, "barcode_key = ? AND edited_at <= ?",
+                    new String[]{pushed.key, Long.toString(pushed.editedAtMillis)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public long getProductCount() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE_PRODUCTS, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
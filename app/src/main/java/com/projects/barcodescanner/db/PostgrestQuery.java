@@ -0,0 +1,234 @@
+package com.projects.barcodescanner.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * Builds a PostgREST read of one table: which columns, which rows, in what order and how many.
+ * Values are quoted where PostgREST needs it and the URL is encoded by OkHttp, so barcodes and
+ * locations can hold any character.
+ *
+ * <pre>
+ * PostgrestQuery.from(PRODUCTS_ENDPOINT)
+ *         .select("product_name", "barcode")
+ *         .where(Filter.eq("location", location))
+ *         .order("barcode", true)
+ *         .limit(50)
+ *         .newRequest()
+ * </pre>
+ */
+public final class PostgrestQuery {
+
+    /**
+     * A condition on one column, or several joined by {@link #and} or {@link #or}.
+     */
+    public static final class Filter {
+        private final String column;      // null for and/or
+        private final String operator;    // e.g. "eq", "not.eq", "or", "not.and"
+        private final String value;       // as written at the top level of the query string
+        private final String nestedValue; // as written inside and/or, where reserved characters need quotes
+
+        private Filter(String column, String operator, String value, String nestedValue) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+            this.nestedValue = nestedValue;
+        }
+
+        private static Filter compare(String column, String operator, String value) {
+            return new Filter(column, operator, value, quote(value));
+        }
+
+        public static Filter eq(String column, String value) { return compare(column, "eq", value); }
+        public static Filter neq(String column, String value) { return compare(column, "neq", value); }
+        public static Filter gt(String column, String value) { return compare(column, "gt", value); }
+        public static Filter gte(String column, String value) { return compare(column, "gte", value); }
+        public static Filter lt(String column, String value) { return compare(column, "lt", value); }
+        public static Filter lte(String column, String value) { return compare(column, "lte", value); }
+
+        /**
+         * @param value null, true or false; compared by identity, so null is matched too
+         */
+        public static Filter is(String column, Boolean value) {
+            String literal = value == null ? "null" : value.toString();
+            return new Filter(column, "is", literal, literal);
+        }
+
+        public static Filter in(String column, Collection<String> values) {
+            StringBuilder list = new StringBuilder("(");
+            for (String value : values) {
+                if (list.length() > 1) {
+                    list.append(',');
+                }
+                // Commas or parentheses inside a value can't break the list when it is quoted
+                list.append(quote(value));
+            }
+            String literal = list.append(')').toString();
+            return new Filter(column, "in", literal, literal);
+        }
+
+        public static Filter and(Filter... filters) { return join("and", filters); }
+        public static Filter or(Filter... filters) { return join("or", filters); }
+
+        private static Filter join(String operator, Filter... filters) {
+            StringBuilder list = new StringBuilder("(");
+            for (Filter filter : filters) {
+                if (list.length() > 1) {
+                    list.append(',');
+                }
+                list.append(filter.nested());
+            }
+            String literal = list.append(')').toString();
+            return new Filter(null, operator, literal, literal);
+        }
+
+        /** @return the same condition, negated */
+        public Filter not() {
+            return new Filter(column, "not." + operator, value, nestedValue);
+        }
+
+        String parameterName() {
+            return column != null ? column : operator;
+        }
+
+        String parameterValue() {
+            return column != null ? operator + "." + value : value;
+        }
+
+        private String nested() {
+            return column != null ? column + "." + operator + "." + nestedValue : operator + nestedValue;
+        }
+
+        @Override
+        public String toString() {
+            return parameterName() + "=" + parameterValue();
+        }
+    }
+
+    private final HttpUrl endpoint;
+    private final List<String> columns = new ArrayList<>();
+    private final List<Filter> filters = new ArrayList<>();
+    private final List<String> order = new ArrayList<>();
+    private int limit = -1;
+    private int offset = -1;
+    private long rangeFrom = -1;
+    private long rangeTo = -1;
+
+    private PostgrestQuery(HttpUrl endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @param tableEndpoint e.g. {@code https://<project>.supabase.co/rest/v1/products}
+     */
+    public static PostgrestQuery from(String tableEndpoint) {
+        return new PostgrestQuery(HttpUrl.get(tableEndpoint));
+    }
+
+    /**
+     * Asks only for these columns. Without it, or with no columns or null, every column comes back.
+     */
+    public PostgrestQuery select(String... columns) {
+        if (columns != null) {
+            for (String column : columns) {
+                this.columns.add(column);
+            }
+        }
+        return this;
+    }
+
+    /** Adds a condition; all of them must hold. */
+    public PostgrestQuery where(Filter filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    /** Orders by a column, after any column ordered by before. */
+    public PostgrestQuery order(String column, boolean ascending) {
+        order.add(column + (ascending ? ".asc" : ".desc"));
+        return this;
+    }
+
+    public PostgrestQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public PostgrestQuery offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Asks for rows {@code from} to {@code to}, both inclusive and counted from 0, with a
+     * {@code Range} header rather than query parameters.
+     */
+    public PostgrestQuery range(long from, long to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Bad range " + from + "-" + to);
+        }
+        this.rangeFrom = from;
+        this.rangeTo = to;
+        return this;
+    }
+
+    public HttpUrl url() {
+        HttpUrl.Builder url = endpoint.newBuilder();
+        for (Filter filter : filters) {
+            url.addQueryParameter(filter.parameterName(), filter.parameterValue());
+        }
+        if (!columns.isEmpty()) {
+            url.addQueryParameter("select", commaSeparated(columns));
+        }
+        if (!order.isEmpty()) {
+            url.addQueryParameter("order", commaSeparated(order));
+        }
+        if (limit >= 0) {
+            url.addQueryParameter("limit", Integer.toString(limit));
+        }
+        if (offset >= 0) {
+            url.addQueryParameter("offset", Integer.toString(offset));
+        }
+        return url.build();
+    }
+
+    /**
+     * @return a GET of this query; callers may still add headers
+     */
+    public Request.Builder newRequest() {
+        Request.Builder request = new Request.Builder()
+                .url(url())
+                .get();
+        if (rangeFrom >= 0) {
+            request.addHeader("Range-Unit", "items")
+                    .addHeader("Range", String.format(Locale.US, "%d-%d", rangeFrom, rangeTo));
+        }
+        return request;
+    }
+
+    /**
+     * String.join needs API 26.
+     */
+    private static String commaSeparated(List<String> parts) {
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(part);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Quotes a value for a PostgREST list or logic expression.
+     */
+    static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,381 @@
+package com.projects.barcodescanner.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.projects.barcodescanner.model.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Products by canonical barcode, in a bounded in-memory LRU in front of a size-capped directory of
+ * JSON files. The memory tier is what makes repeat scans of the same item free; the disk tier
+ * survives restarts.
+ *
+ * An entry is fresh for {@code freshMillis} after it was fetched, after which it may still be
+ * served for {@code staleMillis} while the caller refetches it. "Not found" is cached too, but only
+ * in memory and only for {@code negativeMillis}, so a product added meanwhile shows up soon.
+ *
+ * {@link #getFromMemory} and {@link #put} are cheap and may be called from any thread; everything
+ * else may touch files and belongs on a background thread.
+ */
+public class ProductCache {
+
+    public static final int DEFAULT_MAX_MEMORY_ENTRIES = 256;
+    public static final long DEFAULT_MAX_DISK_BYTES = 4L * 1024 * 1024;
+    public static final long DEFAULT_FRESH_MILLIS = 15 * 60_000L;
+    public static final long DEFAULT_STALE_MILLIS = 24 * 60 * 60_000L;
+    public static final long DEFAULT_NEGATIVE_MILLIS = 60_000L;
+
+    // After going over the cap, the disk tier is trimmed to this share of it
+    private static final double DISK_TRIM_FRACTION = 0.9;
+
+    /** A cached product, or a cached "not found". */
+    public static final class Entry {
+        private final Product product;
+        private final long fetchedAtMillis;
+        private final long freshUntilMillis;
+        private final long usableUntilMillis;
+
+        Entry(Product product, long fetchedAtMillis, long freshUntilMillis, long usableUntilMillis) {
+            this.product = product;
+            this.fetchedAtMillis = fetchedAtMillis;
+            this.freshUntilMillis = freshUntilMillis;
+            this.usableUntilMillis = usableUntilMillis;
+        }
+
+        /** @return the product, or null for a "not found" entry */
+        public Product getProduct() { return product; }
+        public boolean isNotFound() { return product == null; }
+        public long getFetchedAtMillis() { return fetchedAtMillis; }
+
+        /** @return false once the entry should be refetched, though it may still be served */
+        public boolean isFresh(long nowMillis) {
+            return nowMillis < freshUntilMillis;
+        }
+
+        boolean isUsable(long nowMillis) {
+            return nowMillis < usableUntilMillis;
+        }
+    }
+
+    private final int maxMemoryEntries;
+    private final File directory;
+    private final long maxDiskBytes;
+    private final long freshMillis;
+    private final long staleMillis;
+    private final long negativeMillis;
+
+    private final LinkedHashMap<String, Entry> memory;
+    private final Object diskLock = new Object();
+    private long diskBytes = -1; // unknown until the directory is first scanned
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong notFoundHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    public ProductCache(File directory) {
+        this(directory, DEFAULT_MAX_MEMORY_ENTRIES, DEFAULT_MAX_DISK_BYTES,
+                DEFAULT_FRESH_MILLIS, DEFAULT_STALE_MILLIS, DEFAULT_NEGATIVE_MILLIS);
+    }
+
+    /**
+     * @param directory where the disk tier keeps its files, or null for a memory-only cache
+     */
+    public ProductCache(File directory, int maxMemoryEntries, long maxDiskBytes,
+                        long freshMillis, long staleMillis, long negativeMillis) {
+        this.directory = directory;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.maxDiskBytes = maxDiskBytes;
+        this.freshMillis = freshMillis;
+        this.staleMillis = staleMillis;
+        this.negativeMillis = negativeMillis;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ProductCache.this.maxMemoryEntries) {
+                    memoryEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the entry if it is in memory and still usable, fresh or stale; null otherwise
+     */
+    public Entry getFromMemory(String key, long nowMillis) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && !entry.isUsable(nowMillis)) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+            countHit(entry, nowMillis);
+        }
+        return entry;
+    }
+
+    /**
+     * Looks the key up on disk and moves a usable entry into memory. Counts a miss if it is not
+     * found, so call it only after {@link #getFromMemory}.
+     * @return the entry if it is on disk and still usable; null otherwise
+     */
+    public Entry getFromDisk(String key, long nowMillis) {
+        Entry entry = directory != null ? readFromDisk(key, nowMillis) : null;
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        diskHits.incrementAndGet();
+        countHit(entry, nowMillis);
+        return entry;
+    }
+
+    private void countHit(Entry entry, long nowMillis) {
+        if (entry.isNotFound()) {
+            notFoundHits.incrementAndGet();
+        } else if (!entry.isFresh(nowMillis)) {
+            staleHits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Caches a product in memory. Call {@link #writeToDisk} from a background thread to persist it.
+     * @return the new entry
+     */
+    public Entry put(String key, Product product, long nowMillis) {
+        Entry entry = new Entry(product, nowMillis, nowMillis + freshMillis, nowMillis + freshMillis + staleMillis);
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Remembers, in memory only, that there is no product for this key.
+     */
+    public void putNotFound(String key, long nowMillis) {
+        Entry entry = new Entry(null, nowMillis, nowMillis + negativeMillis, nowMillis + negativeMillis);
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        if (directory != null) {
+            // A product cached earlier must not outlive the answer that it no longer exists
+            synchronized (diskLock) {
+                deleteFile(fileFor(key));
+            }
+        }
+    }
+
+    /**
+     * Drops the key from both tiers, e.g. after the product was added or edited.
+     */
+    public void invalidate(String key) {
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        if (directory != null) {
+            synchronized (diskLock) {
+                deleteFile(fileFor(key));
+            }
+        }
+    }
+
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    /**
+     * Persists a product entry, then trims the directory back under its size cap by deleting the
+     * least recently used files.
+     */
+    public void writeToDisk(String key, Entry entry) {
+        if (directory == null || entry.isNotFound()) {
+            return;
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("key", key);
+        json.addProperty("fetched_at", entry.fetchedAtMillis);
+        json.add("product", ProductJson.toJson(entry.product));
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        synchronized (diskLock) {
+            ensureDiskScanned();
+            File file = fileFor(key);
+            long previous = file.length();
+            File temp = new File(directory, file.getName() + ".tmp");
+            try {
+                // java.nio.file needs API 26
+                try (OutputStream out = new FileOutputStream(temp)) {
+                    out.write(bytes);
+                }
+                if (!temp.renameTo(file)) {
+                    // The temp file was never counted in diskBytes
+                    temp.delete();
+                    return;
+                }
+            } catch (IOException e) {
+                temp.delete();
+                return;
+            }
+            diskBytes += bytes.length - previous;
+            if (diskBytes > maxDiskBytes) {
+                trimDisk();
+            }
+        }
+    }
+
+    private Entry readFromDisk(String key, long nowMillis) {
+        synchronized (diskLock) {
+            File file = fileFor(key);
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                String text = new String(readFully(file), StandardCharsets.UTF_8);
+                JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+                JsonElement product = json.get("product");
+                if (!key.equals(json.get("key").getAsString()) || product == null || !product.isJsonObject()) {
+                    return null; // Hash collision or a file from an older format
+                }
+                long fetchedAt = json.get("fetched_at").getAsLong();
+                Entry entry = new Entry(ProductJson.fromJson(product.getAsJsonObject()), fetchedAt,
+                        fetchedAt + freshMillis, fetchedAt + freshMillis + staleMillis);
+                if (!entry.isUsable(nowMillis)) {
+                    deleteFile(file);
+                    return null;
+                }
+                // Modification time is the recency the trim goes by
+                file.setLastModified(nowMillis);
+                return entry;
+            } catch (IOException | RuntimeException e) {
+                deleteFile(file);
+                return null;
+            }
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void ensureDiskScanned() {
+        if (diskBytes >= 0) {
+            return;
+        }
+        directory.mkdirs();
+        long total = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        diskBytes = total;
+    }
+
+    private void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long target = (long) (maxDiskBytes * DISK_TRIM_FRACTION);
+        for (File file : files) {
+            if (diskBytes <= target) {
+                break;
+            }
+            if (deleteFile(file)) {
+                diskEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean deleteFile(File file) {
+        long length = file.length();
+        if (!file.delete()) {
+            return false;
+        }
+        if (diskBytes >= 0) {
+            diskBytes -= length;
+        }
+        return true;
+    }
+
+    private File fileFor(String key) {
+        // Keys can be arbitrary QR text, so they are hashed into a safe file name
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 5);
+            for (byte b : digest) {
+                name.append(String.format(Locale.US, "%02x", b));
+            }
+            return new File(directory, name.append(".json").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getMemorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getStaleHits() { return staleHits.get(); }
+    public long getNotFoundHits() { return notFoundHits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getMemoryEvictions() { return memoryEvictions.get(); }
+    public long getDiskEvictions() { return diskEvictions.get(); }
+
+    @Override
+    public String toString() {
+        long bytes;
+        synchronized (diskLock) {
+            bytes = diskBytes;
+        }
+        return String.format(Locale.US,
+                "product cache memoryHits=%d diskHits=%d (stale %d, notFound %d) misses=%d evictions memory=%d disk=%d size=%d/%d diskBytes=%d",
+                memoryHits.get(), diskHits.get(), staleHits.get(), notFoundHits.get(), misses.get(),
+                memoryEvictions.get(), diskEvictions.get(), getMemorySize(), maxMemoryEntries, bytes);
+    }
+}
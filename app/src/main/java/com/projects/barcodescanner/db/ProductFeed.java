@@ -0,0 +1,319 @@
+package com.projects.barcodescanner.db;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.projects.barcodescanner.model.Product;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * The products of one location as a list that is loaded a page at a time, for a carousel that may
+ * be scrolled through thousands of them. Pages are fetched by keyset, after the last barcode of the
+ * page before, so fetching page 500 costs the same as fetching page 1.
+ *
+ * The next page is prefetched as the shown position nears the end of what is loaded. Pages more
+ * than {@code keepPages} away from the shown one are dropped and fetched again if the user comes
+ * back to them, so memory stays the same however far the list is scrolled. Only the page cursors
+ * are kept for every page.
+ *
+ * Not thread safe: call it, and hear from it, on the main thread. Apart from
+ * {@link #forLocation}, it makes no Android calls, so it runs in plain JVM tests.
+ */
+public final class ProductFeed {
+
+    private static final String TAG = "ProductFeed";
+
+    public interface Listener {
+        /**
+         * Called for every page added at the end of the list, also for an empty first page.
+         */
+        void onItemsInserted(int start, int count);
+
+        /** Called when a dropped page has been fetched again. */
+        void onItemsChanged(int start, int count);
+
+        /**
+         * @param empty true if the first page failed, so there is nothing to show
+         */
+        void onError(IOException e, boolean empty);
+    }
+
+    /** Fetches up to {@code limit} products after a cursor, in the order the cursor follows. */
+    interface PageLoader {
+        void load(String after, int limit, PageCallback callback);
+    }
+
+    interface PageCallback {
+        /**
+         * @param next the cursor to fetch the following page after, or null if the page is empty
+         */
+        void onPage(List<Product> products, String next);
+
+        void onError(IOException e);
+    }
+
+    private final PageLoader loader;
+    private final Executor callbackExecutor;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int keepPages;
+    private final Listener listener;
+
+    // What each page is fetched after; null for the first page. Known up to the page after the last loaded.
+    private final List<String> cursors = new ArrayList<>();
+    private final Map<Integer, List<Product>> pages = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int loadedPages = 0;
+    private int count = 0;
+    private boolean complete = false;
+    private boolean closed = false;
+
+    ProductFeed(PageLoader loader, Executor callbackExecutor, int pageSize, int prefetchDistance, int keepPages,
+                Listener listener) {
+        this.loader = loader;
+        this.callbackExecutor = callbackExecutor;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.keepPages = keepPages;
+        this.listener = listener;
+        cursors.add(null);
+    }
+
+    /**
+     * A feed of the products in a location, from Supabase, or from {@link LocalProductStore} if the
+     * first page can't be fetched and the location was stored before.
+     * @param columns the columns the screen shows, see {@link PostgrestQuery#select}
+     */
+    public static ProductFeed forLocation(Context context, String location, String[] columns, int pageSize,
+                                          Listener listener) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        LocationPageLoader loader = new LocationPageLoader(context.getApplicationContext(), location, columns);
+        // Two pages on either side of the shown one stay in memory
+        return new ProductFeed(loader, mainHandler::post, pageSize, Math.max(1, pageSize / 4), 2, listener);
+    }
+
+    public void start() {
+        load(0);
+    }
+
+    /** Stops loading; results still in flight are dropped. */
+    public void close() {
+        closed = true;
+        pages.clear();
+    }
+
+    /** @return the number of positions the list has so far, whether their pages are in memory or not */
+    public int getCount() {
+        return count;
+    }
+
+    /** @return true once the last page has been loaded */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the product at a position, or null if its page was dropped and is being fetched again
+     */
+    public Product get(int position) {
+        List<Product> page = pages.get(position / pageSize);
+        int offset = position % pageSize;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Tells the feed which position is on screen: fetches its page and those next to it if they were
+     * dropped, prefetches the next page near the end, and drops pages far away.
+     */
+    public void onPositionShown(int position) {
+        if (closed) {
+            return;
+        }
+        int shownPage = position / pageSize;
+        for (int page = Math.max(0, shownPage - 1); page <= shownPage + 1 && page < loadedPages; page++) {
+            if (!pages.containsKey(page)) {
+                load(page);
+            }
+        }
+        if (!complete && position >= count - prefetchDistance && loadedPages < cursors.size()) {
+            load(loadedPages);
+        }
+        Iterator<Integer> loaded = pages.keySet().iterator();
+        while (loaded.hasNext()) {
+            if (Math.abs(loaded.next() - shownPage) > keepPages) {
+                loaded.remove();
+            }
+        }
+    }
+
+    /** @return how many pages are in memory */
+    int getPagesInMemory() {
+        return pages.size();
+    }
+
+    private void load(int page) {
+        if (closed || !loading.add(page)) {
+            return;
+        }
+        loader.load(cursors.get(page), pageSize, new PageCallback() {
+            @Override
+            public void onPage(List<Product> products, String next) {
+                callbackExecutor.execute(() -> onLoaded(page, products, next));
+            }
+
+            @Override
+            public void onError(IOException e) {
+                callbackExecutor.execute(() -> onFailed(page, e));
+            }
+        });
+    }
+
+    private void onLoaded(int page, List<Product> products, String next) {
+        loading.remove(page);
+        if (closed) {
+            return;
+        }
+        if (products.size() > pageSize) {
+            products = new ArrayList<>(products.subList(0, pageSize));
+        }
+        int start = page * pageSize;
+        pages.put(page, products);
+        if (page < loadedPages) {
+            // Rows may have changed meanwhile; the positions stay as they were
+            listener.onItemsChanged(start, Math.min(pageSize, count - start));
+            return;
+        }
+        loadedPages = page + 1;
+        count += products.size();
+        if (products.size() < pageSize || next == null) {
+            complete = true;
+        } else {
+            cursors.add(next);
+        }
+        listener.onItemsInserted(start, products.size());
+    }
+
+    private void onFailed(int page, IOException e) {
+        loading.remove(page);
+        if (closed) {
+            return;
+        }
+        // Nothing to undo; the page is tried again the next time it is needed
+        listener.onError(e, count == 0);
+    }
+
+    /**
+     * Pages of a location from Supabase, ordered by barcode. If the first page can't be fetched, the
+     * feed is served from the local store instead, ordered by its barcode keys; the two orders
+     * differ, so the source stays whatever the first page came from.
+     */
+    private static final class LocationPageLoader implements PageLoader {
+        private final Context appContext;
+        private final String location;
+        private final String[] columns;
+        // Set by the first page; read and written on OkHttp and repository threads
+        private volatile Boolean offline;
+
+        LocationPageLoader(Context appContext, String location, String[] columns) {
+            this.appContext = appContext;
+            this.location = location;
+            this.columns = columns;
+        }
+
+        @Override
+        public void load(String after, int limit, PageCallback callback) {
+            if (Boolean.TRUE.equals(offline)) {
+                loadStored(after, limit, callback, null);
+                return;
+            }
+            SupabaseService.getProductsByLocation(location, after, limit, columns, new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    Log.w(TAG, "Loading " + location + " after " + after + " failed: " + e.getMessage());
+                    if (offline == null) {
+                        loadStored(after, limit, callback, e);
+                    } else {
+                        callback.onError(e);
+                    }
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    List<Product> products = new ArrayList<>();
+                    String next = null;
+                    try {
+                        if (!response.isSuccessful() || response.body() == null) {
+                            throw new IOException("Unsuccessful response: " + response.code());
+                        }
+                        JsonArray rows = JsonParser.parseString(response.body().string()).getAsJsonArray();
+                        for (JsonElement row : rows) {
+                            Product product = ProductJson.fromJson(row.getAsJsonObject());
+                            products.add(product);
+                            next = product.getBarcode();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        onFailure(call, e instanceof IOException ? (IOException) e : new IOException(e));
+                        return;
+                    } finally {
+                        response.close();
+                    }
+                    if (offline == null) {
+                        offline = false;
+                        // Keeps the location in the local store for when the network is gone
+                        ProductSync.syncLocation(appContext, location, null);
+                    }
+                    callback.onPage(products, next);
+                }
+            });
+        }
+
+        /**
+         * @param networkError why the network was not used, reported if the store has nothing either
+         */
+        private void loadStored(String after, int limit, PageCallback callback, IOException networkError) {
+            ProductRepository.getInstance(appContext).getStoredLocationPage(location, after, limit,
+                    new ProductRepository.ProductListCallback() {
+                        @Override
+                        public void onProductsLoaded(List<Product> products) {
+                            if (networkError != null && products.isEmpty()) {
+                                callback.onError(networkError);
+                                return;
+                            }
+                            offline = true;
+                            String next = products.isEmpty() ? null
+                                    : ProductRepository.keyFor(products.get(products.size() - 1).getBarcode());
+                            callback.onPage(products, next);
+                        }
+
+                        @Override
+                        public void onError(IOException e) {
+                            callback.onError(networkError != null ? networkError : e);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.projects.barcodescanner.db;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.projects.barcodescanner.model.Product;
+
+import java.lang.reflect.Type;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps rows of the Supabase {@code products} table to {@link Product} and back. Used for network
+ * responses and for what the cache writes to disk, so both read the same way.
+ */
+public final class ProductJson {
+
+    private static final Gson gson = new Gson();
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {}.getType();
+    // timestamptz as PostgREST renders it, e.g. 2024-05-01T12:34:56.789012+00:00
+    private static final Pattern TIMESTAMP =
+            Pattern.compile("(\\d{4}-\\d{2}-\\d{2})[T ](\\d{2}:\\d{2}:\\d{2})(?:\\.(\\d+))?(Z|[+-]\\d{2}(?::?\\d{2})?)?");
+
+    private ProductJson() {
+    }
+
+    public static Product fromJson(JsonObject jsonObject) {
+        Product product = new Product();
+        product.setProductName(getString(jsonObject, "product_name"));
+        product.setBrand(getString(jsonObject, "brand"));
+        product.setDescription(getString(jsonObject, "description"));
+        product.setCategory(getString(jsonObject, "category"));
+        product.setPrice(getString(jsonObject, "price"));
+        product.setCurrency(getString(jsonObject, "currency"));
+        product.setBarcode(getString(jsonObject, "barcode"));
+        product.setEdible(getBool(jsonObject, "is_edible"));
+        product.setManufacturedIn(getString(jsonObject, "manufactured_in"));
+        product.setImageUrl(getString(jsonObject, "image_url"));
+        product.setLocation(getString(jsonObject, "location"));
+
+        product.setSpecifications(getStringList(jsonObject, "specifications"));
+        product.setHealthBenefits(getStringList(jsonObject, "health_benefits"));
+        product.setIngredients(getStringList(jsonObject, "ingredients"));
+        product.setAvailableStores(getStringList(jsonObject, "available_stores"));
+        return product;
+    }
+
+    public static JsonObject toJson(Product product) {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("product_name", product.getProductName());
+        jsonObject.addProperty("brand", product.getBrand());
+        jsonObject.addProperty("description", product.getDescription());
+        jsonObject.addProperty("category", product.getCategory());
+        jsonObject.addProperty("price", product.getPrice());
+        jsonObject.addProperty("currency", product.getCurrency());
+        jsonObject.addProperty("barcode", product.getBarcode());
+        jsonObject.addProperty("is_edible", product.isEdible());
+        jsonObject.addProperty("manufactured_in", product.getManufacturedIn());
+        jsonObject.addProperty("image_url", product.getImageUrl());
+        jsonObject.addProperty("location", product.getLocation());
+
+        jsonObject.add("specifications", gson.toJsonTree(product.getSpecifications(), STRING_LIST));
+        jsonObject.add("health_benefits", gson.toJsonTree(product.getHealthBenefits(), STRING_LIST));
+        jsonObject.add("ingredients", gson.toJsonTree(product.getIngredients(), STRING_LIST));
+        jsonObject.add("available_stores", gson.toJsonTree(product.getAvailableStores(), STRING_LIST));
+        return jsonObject;
+    }
+
+    /**
+     * @return the row's {@code updated_at} in epoch milliseconds, or 0 if it has none
+     */
+    public static long updatedAtMillis(JsonObject row) {
+        String value = getString(row, "updated_at");
+        return value.isEmpty() ? 0 : Math.max(0, parseTimestamp(value));
+    }
+
+    /**
+     * @return true for a tombstone, a row the server keeps only to tell clients it was deleted
+     */
+    public static boolean isDeleted(JsonObject row) {
+        return getBool(row, "deleted");
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp with any number of fractional digits; {@code java.time} needs API 26.
+     * @return epoch milliseconds, or -1 if the value is not a timestamp
+     */
+    static long parseTimestamp(String value) {
+        Matcher m = TIMESTAMP.matcher(value.trim());
+        if (!m.matches()) {
+            return -1;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long millis;
+        try {
+            millis = format.parse(m.group(1) + " " + m.group(2)).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+        String fraction = m.group(3);
+        if (fraction != null) {
+            millis += Integer.parseInt((fraction + "00").substring(0, 3));
+        }
+        String offset = m.group(4);
+        if (offset != null && !offset.equals("Z")) {
+            String digits = offset.substring(1).replace(":", "");
+            int minutes = Integer.parseInt(digits.substring(0, 2)) * 60
+                    + (digits.length() >= 4 ? Integer.parseInt(digits.substring(2, 4)) : 0);
+            millis -= (offset.charAt(0) == '-' ? -minutes : minutes) * 60_000L;
+        }
+        return millis;
+    }
+
+    private static String getString(JsonObject obj, String key) {
+        return obj.has(key) && !obj.get(key).isJsonNull() ? obj.get(key).getAsString() : "";
+    }
+
+    private static boolean getBool(JsonObject obj, String key) {
+        return obj.has(key) && !obj.get(key).isJsonNull() && obj.get(key).getAsBoolean();
+    }
+
+    private static List<String> getStringList(JsonObject obj, String key) {
+        if (!obj.has(key) || obj.get(key).isJsonNull()) {
+            return Collections.emptyList();
+        }
+        try {
+            JsonElement value = obj.get(key);
+            // Older rows store the array as a JSON string
+            JsonArray array = value.isJsonArray() ? value.getAsJsonArray()
+                    : JsonParser.parseString(value.getAsString()).getAsJsonArray();
+            return gson.fromJson(array, STRING_LIST);
+        } catch (RuntimeException e) {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.projects.barcodescanner.db;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.projects.barcodescanner.model.Product;
+import com.projects.barcodescanner.scanner.Gtin;
+import com.projects.barcodescanner.scanner.ScanMetrics;
+import com.projects.barcodescanner.scanner.ScanTrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Product lookups by barcode and location, answered on the device when possible and from Supabase
+ * otherwise. Barcodes are keyed by {@link Gtin#canonicalKey}, so every spelling of a GTIN shares
+ * one entry.
+ *
+ * A barcode is looked up in the memory tier of {@link ProductCache}, then in
+ * {@link LocalProductStore}, then in the cache's disk tier and only then over the network. A fresh
+ * entry is answered straight away, on the calling thread if it is in memory. A stale one is
+ * answered the same way and then refetched; if the product changed, the callback hears about it a
+ * second time. Whatever comes over the network is written through to the local store. Callers
+ * asking for the same key while it is being fetched share that fetch instead of starting another.
+ *
+ * Location lists are paged through by {@link ProductFeed}, from Supabase or, offline, from the
+ * local store, which {@link ProductSync} keeps up to date.
+ */
+public final class ProductRepository {
+
+    private static final String TAG = "ProductRepository";
+
+    public interface ProductCallback {
+        /**
+         * Called with the cached product first and again with the refetched one if a stale entry
+         * turned out to have changed.
+         */
+        void onProductFound(Product product);
+
+        /** Also called after a stale answer if the product has since been deleted. */
+        void onProductNotFound();
+
+        /** Called only if there was nothing cached to answer with. */
+        void onError(IOException e);
+    }
+
+    public interface ProductListCallback {
+        void onProductsLoaded(List<Product> products);
+
+        void onError(IOException e);
+    }
+
+    public interface StoredProductsCallback {
+        /** @param products by the barcode asked for; barcodes not on the device are missing */
+        void onStoredProducts(Map<String, Product> products);
+    }
+
+    private static ProductRepository instance;
+
+    private final Context appContext;
+    private final ProductCache cache;
+    private final LocalProductStore store;
+    // Database and disk reads and writes; one thread keeps them ordered per key
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    // Network fetches in progress, by key, with the callers waiting on each
+    private final InFlightRequests<Waiter> inFlight = new InFlightRequests<>();
+    private final AtomicLong networkFetches = new AtomicLong();
+    private final AtomicLong coalescedFetches = new AtomicLong();
+    // Where response parsing is timed, set by the scanner when it opens
+    private volatile ScanMetrics scanMetrics;
+
+    private ProductRepository(Context appContext, ProductCache cache, LocalProductStore store) {
+        this.appContext = appContext;
+        this.cache = cache;
+        this.store = store;
+    }
+
+    public static synchronized ProductRepository getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            File directory = new File(appContext.getCacheDir(), "products");
+            instance = new ProductRepository(appContext, new ProductCache(directory), LocalProductStore.getInstance(appContext));
+        }
+        return instance;
+    }
+
+    public ProductCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param metrics where to record how long product responses take to parse, or null to stop
+     */
+    public void setScanMetrics(ScanMetrics metrics) {
+        this.scanMetrics = metrics;
+    }
+
+    public void getProduct(String barcode, ProductCallback callback) {
+        String key = keyFor(barcode);
+        ProductCache.Entry entry = cache.getFromMemory(key, System.currentTimeMillis());
+        if (entry != null) {
+            answer(key, entry, callback);
+            return;
+        }
+        ioExecutor.execute(() -> {
+            Product stored = readStoredProduct(key);
+            if (stored != null) {
+                // Kept current by ProductSync, so it counts as freshly fetched
+                cache.put(key, stored, System.currentTimeMillis());
+                callback.onProductFound(stored);
+                return;
+            }
+            ProductCache.Entry onDisk = cache.getFromDisk(key, System.currentTimeMillis());
+            if (onDisk != null) {
+                answer(key, onDisk, callback);
+            } else {
+                fetch(key, null, callback);
+            }
+        });
+    }
+
+    /**
+     * Reads one page of a location's products from the local store, without going to the network;
+     * {@link ProductFeed} uses it when offline.
+     * @param afterKey the barcode key of the last product of the page before, or null for the first page
+     */
+    public void getStoredLocationPage(String location, String afterKey, int limit, ProductListCallback callback) {
+        ioExecutor.execute(() -> {
+            try {
+                callback.onProductsLoaded(store.getProductsByLocation(location, afterKey, limit));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Local store read failed for " + location, e);
+                callback.onError(new IOException("Local store unreadable", e));
+            }
+        });
+    }
+
+    /**
+     * Looks barcodes up in the local store only, for callers that send the rest to Supabase in one
+     * request of their own.
+     */
+    public void getStoredProducts(List<String> barcodes, StoredProductsCallback callback) {
+        ioExecutor.execute(() -> {
+            Map<String, Product> stored = new HashMap<>();
+            for (String barcode : barcodes) {
+                Product product = readStoredProduct(keyFor(barcode));
+                if (product != null) {
+                    stored.put(barcode, product);
+                }
+            }
+            callback.onStoredProducts(stored);
+        });
+    }
+
+    /**
+     * Edits a product on the device. The change shows in lookups at once and is pushed to Supabase by
+     * the next {@link ProductSync}.
+     * @param fields column names and new values, as in a row of the products table
+     */
+    public void editProduct(String barcode, JsonObject fields) {
+        String key = keyFor(barcode);
+        JsonObject copy = fields.deepCopy();
+        ioExecutor.execute(() -> {
+            store.editFields(key, copy, System.currentTimeMillis());
+            cache.invalidate(key);
+        });
+    }
+
+    /**
+     * Forgets what is cached for a barcode, e.g. right after the product was added or edited.
+     */
+    public void invalidate(String barcode) {
+        String key = keyFor(barcode);
+        ioExecutor.execute(() -> cache.invalidate(key));
+    }
+
+    private Product readStoredProduct(String key) {
+        try {
+            return store.getProduct(key);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Local store read failed for " + key, e);
+            return null;
+        }
+    }
+
+    private void answer(String key, ProductCache.Entry entry, ProductCallback callback) {
+        if (entry.isNotFound()) {
+            callback.onProductNotFound();
+            return;
+        }
+        callback.onProductFound(entry.getProduct());
+        if (!entry.isFresh(System.currentTimeMillis())) {
+            fetch(key, entry, callback);
+        }
+    }
+
+    /**
+     * A caller waiting on a fetch, with the stale entry it was already answered with, if any.
+     */
+    private static final class Waiter {
+        final ProductCache.Entry stale;
+        final ProductCallback callback;
+
+        Waiter(ProductCache.Entry stale, ProductCallback callback) {
+            this.stale = stale;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Fetches the product, or joins the fetch already running for the same key so that concurrent
+     * callers share one request and one parsed result.
+     * @param stale the entry already answered with, or null if the callback is still waiting
+     */
+    private void fetch(String key, ProductCache.Entry stale, ProductCallback callback) {
+        if (!inFlight.join(key, new Waiter(stale, callback))) {
+            coalescedFetches.incrementAndGet();
+            return;
+        }
+        networkFetches.incrementAndGet();
+        // The product may have been saved under another spelling of the same GTIN
+        // Whole rows, since they are written through to the local store
+        SupabaseService.getProductsByBarcodes(Gtin.lookupVariants(key), null, new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.e(TAG, "Failed to fetch product " + key, e);
+                for (Waiter waiter : finishFetch(key)) {
+                    if (waiter.stale == null) {
+                        waiter.callback.onError(e);
+                    }
+                }
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                String body;
+                try {
+                    body = readBody(response);
+                } catch (IOException e) {
+                    onFailure(call, e);
+                    return;
+                }
+                long parseStart = System.nanoTime();
+                ScanTrace.begin("Scan:parse");
+                JsonArray rows;
+                Product parsed = null;
+                try {
+                    rows = JsonParser.parseString(body).getAsJsonArray();
+                    for (JsonElement row : rows) {
+                        if (!ProductJson.isDeleted(row.getAsJsonObject())) {
+                            parsed = ProductJson.fromJson(row.getAsJsonObject());
+                            break;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    onFailure(call, new IOException("Unreadable response", e));
+                    return;
+                } finally {
+                    ScanTrace.end();
+                    recordParse(parseStart);
+                }
+                // On the I/O thread, so that it is ordered with editProduct and invalidate
+                Product fromResponse = parsed;
+                ioExecutor.execute(() -> storeFetched(key, rows, fromResponse));
+            }
+        });
+    }
+
+    /**
+     * Writes a fetch's rows through to the local store and the cache, then answers its waiters.
+     * @param parsed the live product in the response, or null if there was none
+     */
+    private void storeFetched(String key, JsonArray rows, Product parsed) {
+        long now = System.currentTimeMillis();
+        // Tombstones still go to the store, where they remove the local copy
+        writeThrough(rows);
+        if (parsed == null) {
+            cache.putNotFound(key, now);
+            for (Waiter waiter : finishFetch(key)) {
+                waiter.callback.onProductNotFound();
+            }
+            return;
+        }
+        // The stored copy also carries edits made on the device and not yet synced
+        Product product = readStoredProduct(key);
+        if (product == null) {
+            product = parsed;
+        }
+        ProductCache.Entry entry = cache.put(key, product, now);
+        for (Waiter waiter : finishFetch(key)) {
+            if (waiter.stale == null || hasChanged(waiter.stale.getProduct(), product)) {
+                waiter.callback.onProductFound(product);
+            }
+        }
+        // After answering, so the result is not held up by the file write
+        cache.writeToDisk(key, entry);
+    }
+
+    /**
+     * Ends the fetch for a key once its result is cached, so that later callers hit the cache.
+     * @return everyone who waited on it
+     */
+    private List<Waiter> finishFetch(String key) {
+        return inFlight.finish(key);
+    }
+
+    private void recordParse(long parseStart) {
+        ScanMetrics metrics = scanMetrics;
+        if (metrics != null) {
+            metrics.record(ScanMetrics.Stage.PARSE, System.nanoTime() - parseStart);
+        }
+    }
+
+    private static String readBody(Response response) throws IOException {
+        try {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Unsuccessful response: " + response.code());
+            }
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * @return false if the rows could not be stored; the caller then goes by the response alone
+     */
+    private boolean writeThrough(JsonArray rows) {
+        try {
+            store.putRemoteRows(rows);
+            return true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Local store write failed", e);
+            return false;
+        }
+    }
+
+    private static boolean hasChanged(Product before, Product after) {
+        return !ProductJson.toJson(before).equals(ProductJson.toJson(after));
+    }
+
+    public long getNetworkFetches() { return networkFetches.get(); }
+    public long getCoalescedFetches() { return coalescedFetches.get(); }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s; product fetches network=%d coalesced=%d",
+                cache, networkFetches.get(), coalescedFetches.get());
+    }
+
+    static String keyFor(String barcode) {
+        // A bad check digit still gets looked up as typed; the scanner never gets this far with one
+        String key = Gtin.canonicalKey(barcode);
+        return key != null ? key : barcode.trim();
+    }
+}
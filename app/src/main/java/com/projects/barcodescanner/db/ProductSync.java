@@ -0,0 +1,251 @@
+package com.projects.barcodescanner.db;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Keeps {@link LocalProductStore} in step with Supabase, one location at a time. A sync first pushes
+ * local edits, then asks only for rows of that location changed since its watermark, page by page,
+ * tombstones included. The first sync of a location downloads all of it, later ones only what
+ * changed.
+ *
+ * A location is synced when the home screen shows it, and {@link #start(Context)} refreshes every
+ * location synced before. Only one sync per location runs at a time; a second request for it waits
+ * for the running one.
+ */
+public final class ProductSync {
+
+    private static final String TAG = "ProductSync";
+
+    private static final int PAGE_SIZE = 500;
+    // A background refresh of a location synced less than this ago is skipped
+    private static final long MIN_INTERVAL_MS = 15 * 60_000L;
+    // Same for a location the user has just opened; short, since its list is on screen
+    private static final long MIN_INTERVAL_ON_DEMAND_MS = 60_000L;
+
+    public interface Listener {
+        /**
+         * Called on a background thread.
+         * @param changedRows how many stored products were added, changed or deleted
+         * @param error why the sync stopped early, or null if it completed
+         */
+        void onSyncFinished(int changedRows, IOException error);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Listeners waiting for the running sync of each location
+    private static final Map<String, List<Listener>> running = new HashMap<>();
+    private static final Map<String, Long> lastSuccessAt = new HashMap<>();
+    private static boolean pushingEdits = false;
+
+    private ProductSync() {
+    }
+
+    /**
+     * Pushes local edits and refreshes every location synced before, unless done recently.
+     */
+    public static void start(Context context) {
+        LocalProductStore store = LocalProductStore.getInstance(context);
+        ProductRepository repository = ProductRepository.getInstance(context);
+        executor.execute(() -> {
+            List<String> scopes;
+            try {
+                scopes = store.getSyncedScopes();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Reading synced locations failed: " + e);
+                return;
+            }
+            for (String scope : scopes) {
+                sync(store, repository, scope, MIN_INTERVAL_MS, null);
+            }
+        });
+    }
+
+    /**
+     * Syncs one location now, unless it was synced within the last minute, in which case the
+     * listener hears about it at once with no changes.
+     */
+    public static void syncLocation(Context context, String location, Listener listener) {
+        LocalProductStore store = LocalProductStore.getInstance(context);
+        ProductRepository repository = ProductRepository.getInstance(context);
+        executor.execute(() -> sync(store, repository, location, MIN_INTERVAL_ON_DEMAND_MS, listener));
+    }
+
+    private static void sync(LocalProductStore store, ProductRepository repository, String location,
+                             long minIntervalMs, Listener listener) {
+        boolean due;
+        synchronized (ProductSync.class) {
+            List<Listener> waiting = running.get(location);
+            if (waiting != null) {
+                if (listener != null) {
+                    waiting.add(listener);
+                }
+                return;
+            }
+            Long last = lastSuccessAt.get(location);
+            due = last == null || SystemClock.elapsedRealtime() - last >= minIntervalMs;
+            if (due) {
+                waiting = new ArrayList<>();
+                if (listener != null) {
+                    waiting.add(listener);
+                }
+                running.put(location, waiting);
+            }
+        }
+        if (!due) {
+            if (listener != null) {
+                listener.onSyncFinished(0, null); // Synced recently
+            }
+            return;
+        }
+        boolean pushEdits;
+        synchronized (ProductSync.class) {
+            // Another location's sync may be pushing the same edits right now
+            pushEdits = !pushingEdits;
+            pushingEdits = true;
+        }
+        long startedAt = SystemClock.elapsedRealtime();
+        String[] watermark;
+        try {
+            watermark = store.getWatermark(location);
+        } catch (RuntimeException e) {
+            finish(location, pushEdits, 0, new IOException("Reading the watermark failed", e), startedAt);
+            return;
+        }
+        Runnable pull = () -> pullPage(store, repository, location, watermark, pushEdits, 0, startedAt);
+        if (!pushEdits) {
+            pull.run();
+            return;
+        }
+        Iterator<LocalProductStore.PendingEdit> edits;
+        try {
+            edits = store.getPendingEdits().iterator();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Reading local edits failed: " + e);
+            edits = new ArrayList<LocalProductStore.PendingEdit>().iterator();
+        }
+        pushEdits(store, repository, edits, pull);
+    }
+
+    /**
+     * Pushes edits one product at a time, then runs {@code next} whatever happened to them; edits
+     * that did not make it stay local and are pushed by a later sync.
+     */
+    private static void pushEdits(LocalProductStore store, ProductRepository repository,
+                                  Iterator<LocalProductStore.PendingEdit> edits, Runnable next) {
+        if (!edits.hasNext()) {
+            next.run();
+            return;
+        }
+        LocalProductStore.PendingEdit edit = edits.next();
+        SupabaseService.updateProduct(edit.barcode, edit.fields, new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                // Offline; the pull will most likely fail too, and reports that itself
+                Log.w(TAG, "Pushing edits failed: " + e.getMessage());
+                next.run();
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                boolean pushed = response.isSuccessful();
+                response.close();
+                if (!pushed) {
+                    Log.w(TAG, "Edit of " + edit.barcode + " rejected: " + response.code());
+                } else {
+                    store.clearPushedEdits(edit);
+                    repository.invalidate(edit.barcode);
+                }
+                pushEdits(store, repository, edits, next);
+            }
+        });
+    }
+
+    /**
+     * @param after {@code updated_at} and barcode of the last row stored, or null on a first sync
+     */
+    private static void pullPage(LocalProductStore store, ProductRepository repository, String location,
+                                 String[] after, boolean pushedEdits, int changed, long startedAt) {
+        SupabaseService.getProductChanges(location, after != null ? after[0] : null, after != null ? after[1] : null,
+                PAGE_SIZE, new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                finish(location, pushedEdits, changed, e, startedAt);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                JsonArray rows;
+                int pageChanged;
+                String[] next;
+                try {
+                    if (!response.isSuccessful() || response.body() == null) {
+                        throw new IOException("Unsuccessful response: " + response.code());
+                    }
+                    rows = JsonParser.parseString(response.body().string()).getAsJsonArray();
+                    pageChanged = store.applySyncPage(location, rows);
+                    if (pageChanged > 0) {
+                        // Cached copies of changed or deleted products would otherwise linger
+                        repository.getCache().clearMemory();
+                    }
+                    next = store.getWatermark(location);
+                } catch (IOException | RuntimeException e) {
+                    finish(location, pushedEdits, changed,
+                            e instanceof IOException ? (IOException) e : new IOException(e), startedAt);
+                    return;
+                } finally {
+                    response.close();
+                }
+                if (rows.size() < PAGE_SIZE || next == null) {
+                    finish(location, pushedEdits, changed + pageChanged, null, startedAt);
+                } else {
+                    pullPage(store, repository, location, next, pushedEdits, changed + pageChanged, startedAt);
+                }
+            }
+        });
+    }
+
+    private static void finish(String location, boolean pushedEdits, int changed, IOException error, long startedAt) {
+        List<Listener> listeners;
+        synchronized (ProductSync.class) {
+            listeners = running.remove(location);
+            if (pushedEdits) {
+                pushingEdits = false;
+            }
+            if (error == null) {
+                lastSuccessAt.put(location, SystemClock.elapsedRealtime());
+            }
+        }
+        if (error == null) {
+            Log.d(TAG, "Synced " + location + ": " + changed + " changed rows in "
+                    + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+        } else {
+            Log.w(TAG, "Sync of " + location + " stopped after " + changed + " changed rows: " + error.getMessage());
+        }
+        if (listeners != null) {
+            for (Listener listener : listeners) {
+                listener.onSyncFinished(changed, error);
+            }
+        }
+    }
+}
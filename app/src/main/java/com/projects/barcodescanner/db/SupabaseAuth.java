@@ -5,8 +5,6 @@ import okhttp3.*;
 import org.json.JSONObject;
 
 public class SupabaseAuth {
-    private static final OkHttpClient client = new OkHttpClient();
-
     /**
      * Logs a user in with Supabase Auth using their email and password.
      */
@@ -28,12 +26,11 @@ public class SupabaseAuth {
 
         Request request = new Request.Builder()
                 .url(url)
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
                 .addHeader("Content-Type", "application/json")
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     /**
@@ -49,13 +46,9 @@ public class SupabaseAuth {
         Request request = new Request.Builder()
                 .url(urlWithQuery)
                 .get()
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                // The Bearer token should be the service_role key for this kind of direct table access
-                // Using the API Key here assumes it's the service_role key or the table has read access policies.
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     // You can remove fetchUserData as it is no longer needed.
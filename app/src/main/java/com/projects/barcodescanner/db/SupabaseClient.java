@@ -5,8 +5,6 @@ import okhttp3.*;
 import org.json.JSONObject;
 
 public class SupabaseClient {
-    private static final OkHttpClient client = new OkHttpClient();
-
     /**
      * Registers a new user with Supabase Auth, sending along metadata like the username.
      * The database trigger will use this metadata to populate the public.users table.
@@ -30,12 +28,11 @@ public class SupabaseClient {
 
         Request request = new Request.Builder()
                 .url(url)
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
                 .addHeader("Content-Type", "application/json")
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     // You can remove the insertUserData method now as it is no longer used.
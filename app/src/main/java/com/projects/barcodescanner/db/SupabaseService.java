@@ -5,27 +5,20 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.projects.barcodescanner.constants.Constants;
+import com.projects.barcodescanner.db.PostgrestQuery.Filter;
 import com.google.gson.JsonObject;
 
 import java.io.File;
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
 
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 
 public class SupabaseService {
 
-    // --- CHANGE: Create a custom client with a longer timeout ---
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS) // Time to establish a connection
-            .readTimeout(30, TimeUnit.SECONDS)    // Time to wait for data to be read
-            .writeTimeout(30, TimeUnit.SECONDS)   // Time to wait for data to be written
-            .build();
-    // --- END CHANGE ---
-
     private static final String PRODUCTS_ENDPOINT = Constants.SUPABASE_URL + "/rest/v1/products";
 
     /**
@@ -42,13 +35,11 @@ public class SupabaseService {
         Request request = new Request.Builder()
                 .url(PRODUCTS_ENDPOINT)
                 .post(body)
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
                 .addHeader("Content-Type", "application/json")
                 .addHeader("Prefer", "return=minimal") // To avoid getting the whole object back
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     /**
@@ -67,31 +58,59 @@ public class SupabaseService {
         Request request = new Request.Builder()
                 .url(uploadUrl)
                 .post(requestBody)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
                 .addHeader("Content-Type", contentResolver.getType(imageUri))
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.uploads().newCall(request).enqueue(callback);
     }
 
     /**
-     * Fetches a single product by its barcode.
-     * @param barcode The product's barcode.
+     * Fetches all products whose barcode is in the given set, in a single request.
+     * Barcodes without a matching product are simply missing from the response. Tombstones are
+     * not filtered out here, so that this works on a table without a {@code deleted} column;
+     * callers drop them with {@link ProductJson#isDeleted}.
+     * @param barcodes The barcodes to look up.
+     * @param columns The columns the caller uses, or null for all of them.
      * @param callback OkHttp callback to handle the response.
      */
-    public static void getProductByBarcode(String barcode, Callback callback) {
-        // The URL needs to be encoded properly, OkHttp handles this
-        String urlWithQuery = PRODUCTS_ENDPOINT + "?barcode=eq." + barcode + "&select=*";
-
-        Request request = new Request.Builder()
-                .url(urlWithQuery)
-                .get()
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
+    public static void getProductsByBarcodes(Collection<String> barcodes, String[] columns, Callback callback) {
+        Request request = PostgrestQuery.from(PRODUCTS_ENDPOINT)
+                .select(columns)
+                .where(Filter.in("barcode", barcodes))
+                .newRequest()
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
+    }
+
+    /**
+     * Fetches one page of the products in a location that changed after a watermark, tombstones
+     * included, ordered by {@code updated_at} and then barcode. Pages are chained by passing the
+     * last row's {@code updated_at} and barcode, which stays fast however many rows changed and
+     * cannot skip rows that share a timestamp.
+     * @param location The location to sync.
+     * @param afterUpdatedAt The {@code updated_at} of the last row already synced, as the server
+     *                       sent it, or null for everything.
+     * @param afterBarcode The barcode of that row.
+     * @param limit The page size.
+     * @param callback OkHttp callback to handle the response.
+     */
+    public static void getProductChanges(String location, String afterUpdatedAt, String afterBarcode,
+                                         int limit, Callback callback) {
+        PostgrestQuery query = PostgrestQuery.from(PRODUCTS_ENDPOINT)
+                .where(Filter.eq("location", location))
+                .order("updated_at", true)
+                .order("barcode", true)
+                .limit(limit);
+        if (afterUpdatedAt != null) {
+            query.where(Filter.or(
+                    Filter.gt("updated_at", afterUpdatedAt),
+                    Filter.and(Filter.eq("updated_at", afterUpdatedAt), Filter.gt("barcode", afterBarcode))));
+        }
+
+        Request request = query.newRequest().build();
+
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     /**
@@ -101,7 +120,9 @@ public class SupabaseService {
      * @param callback OkHttp callback to handle the response.
      */
     public static void updateProduct(String barcode, JsonObject updatedDataJson, Callback callback) {
-        String urlWithQuery = PRODUCTS_ENDPOINT + "?barcode=eq." + barcode;
+        HttpUrl url = PostgrestQuery.from(PRODUCTS_ENDPOINT)
+                .where(Filter.eq("barcode", barcode))
+                .url();
 
         RequestBody body = RequestBody.create(
                 updatedDataJson.toString(),
@@ -109,33 +130,40 @@ public class SupabaseService {
         );
 
         Request request = new Request.Builder()
-                .url(urlWithQuery)
+                .url(url)
                 .patch(body) // PATCH is used for partial updates
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
                 .addHeader("Content-Type", "application/json")
                 .addHeader("Prefer", "return=minimal")
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     /**
-     * Fetches a list of products based on a location identifier.
+     * Fetches one page of the live products in a location, ordered by barcode. Pages are chained by
+     * passing the last barcode of the page before, which costs the same however deep the page is.
+     * Tombstones are filtered out by the server, so a short page still means the last one.
      * @param location The location to filter products by.
+     * @param afterBarcode The last barcode of the page before, or null for the first page.
+     * @param limit The page size.
+     * @param columns The columns the caller uses, or null for all of them.
      * @param callback OkHttp callback to handle the response.
      */
-    public static void getProductsByLocation(String location, Callback callback) {
-        String urlWithQuery = PRODUCTS_ENDPOINT + "?location=eq." + location + "&select=*";
-
-        Request request = new Request.Builder()
-                .url(urlWithQuery)
-                .get()
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
-                .build();
-
-        client.newCall(request).enqueue(callback);
+    public static void getProductsByLocation(String location, String afterBarcode, int limit, String[] columns,
+                                             Callback callback) {
+        PostgrestQuery query = PostgrestQuery.from(PRODUCTS_ENDPOINT)
+                .select(columns)
+                .where(Filter.eq("location", location))
+                .where(Filter.is("deleted", false))
+                .order("barcode", true)
+                .limit(limit);
+        if (afterBarcode != null) {
+            query.where(Filter.gt("barcode", afterBarcode));
+        }
+
+        Request request = query.newRequest().build();
+
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
 
     /**
@@ -150,11 +178,8 @@ public class SupabaseService {
         Request request = new Request.Builder()
                 .url(url)
                 .post(RequestBody.create(new byte[0])) // RPCs are POST requests
-                .addHeader("apikey", Constants.SUPABASE_API_KEY)
-                .addHeader("Authorization", "Bearer " + Constants.SUPABASE_API_KEY)
                 .build();
 
-        client.newCall(request).enqueue(callback);
+        ApiClient.queries().newCall(request).enqueue(callback);
     }
-
-}
\ No newline at end of file
+}
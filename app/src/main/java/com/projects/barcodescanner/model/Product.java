@@ -1,8 +1,15 @@
 package com.projects.barcodescanner.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.util.List;
 
-public class Product {
+/**
+ * Parcelable so a product already fetched by the scanner can be handed to the detail screen in the
+ * intent instead of being downloaded again.
+ */
+public class Product implements Parcelable {
     private String productName;
     private String brand;
     private String description;
@@ -19,6 +26,63 @@ public class Product {
     private String imageUrl;
     private String location;
 
+    public Product() {
+    }
+
+    protected Product(Parcel in) {
+        productName = in.readString();
+        brand = in.readString();
+        description = in.readString();
+        category = in.readString();
+        price = in.readString();
+        currency = in.readString();
+        specifications = in.createStringArrayList();
+        barcode = in.readString();
+        isEdible = in.readByte() != 0;
+        healthBenefits = in.createStringArrayList();
+        ingredients = in.createStringArrayList();
+        manufacturedIn = in.readString();
+        availableStores = in.createStringArrayList();
+        imageUrl = in.readString();
+        location = in.readString();
+    }
+
+    public static final Creator<Product> CREATOR = new Creator<Product>() {
+        @Override
+        public Product createFromParcel(Parcel in) {
+            return new Product(in);
+        }
+
+        @Override
+        public Product[] newArray(int size) {
+            return new Product[size];
+        }
+    };
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(productName);
+        dest.writeString(brand);
+        dest.writeString(description);
+        dest.writeString(category);
+        dest.writeString(price);
+        dest.writeString(currency);
+        dest.writeStringList(specifications);
+        dest.writeString(barcode);
+        dest.writeByte((byte) (isEdible ? 1 : 0));
+        dest.writeStringList(healthBenefits);
+        dest.writeStringList(ingredients);
+        dest.writeString(manufacturedIn);
+        dest.writeStringList(availableStores);
+        dest.writeString(imageUrl);
+        dest.writeString(location);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
     // Getters and Setters for all fields
     // You can generate these automatically in Android Studio (Right-click -> Generate -> Getters and Setters)
 
@@ -0,0 +1,78 @@
+package com.projects.barcodescanner.scanner;
+
+import android.util.Size;
+
+import androidx.camera.core.resolutionselector.AspectRatioStrategy;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+
+/**
+ * Chooses the ImageAnalysis resolution independently of the preview.
+ *
+ * Decode cost grows with pixel count, so the analysis stream should be the smallest size that
+ * still resolves an EAN-13 at our usual scanning distance. The scanner is used in portrait, so
+ * the barcode runs along the sensor's short side; that side has to give every module of the
+ * label at least {@link #MIN_PIXELS_PER_MODULE} pixels inside the viewfinder.
+ *
+ * Both streams use 4:3 so they share the sensor's field of view, which {@link ScanRegion}
+ * relies on to map the viewfinder into the analysis frame.
+ */
+public class AnalysisResolutionPolicy {
+
+    // EAN-13: 95 modules of symbol plus 9 modules of quiet zone on either side
+    private static final int EAN13_MODULES = 113;
+    private static final float MIN_PIXELS_PER_MODULE = 2f;
+    // The viewfinder box spans 80% of the screen width (see ScannerOverlayView)
+    private static final float VIEWFINDER_WIDTH_FRACTION = 0.8f;
+    // At arm's length a retail label fills about half of the viewfinder
+    private static final float TYPICAL_LABEL_FRACTION = 0.5f;
+
+    private final Size override;
+
+    /**
+     * @param override a fixed analysis size from configuration, or null to compute one
+     */
+    public AnalysisResolutionPolicy(Size override) {
+        this.override = override;
+    }
+
+    /**
+     * @return the smallest sensor short side that still resolves an EAN-13 at the typical distance.
+     */
+    public static int requiredShortSide() {
+        return (int) Math.ceil(EAN13_MODULES * MIN_PIXELS_PER_MODULE
+                / (VIEWFINDER_WIDTH_FRACTION * TYPICAL_LABEL_FRACTION));
+    }
+
+    /**
+     * @return the size CameraX should aim for, in sensor orientation (landscape).
+     */
+    public Size getTargetSize() {
+        if (override != null) {
+            return override;
+        }
+        int shortSide = requiredShortSide();
+        return new Size(shortSide * 4 / 3, shortSide);
+    }
+
+    /**
+     * Analysis streams round up to the next supported size so labels stay readable,
+     * and only go lower if the device has nothing larger.
+     */
+    public ResolutionSelector createAnalysisSelector() {
+        return new ResolutionSelector.Builder()
+                .setAspectRatioStrategy(AspectRatioStrategy.RATIO_4_3_FALLBACK_AUTO_STRATEGY)
+                .setResolutionStrategy(new ResolutionStrategy(getTargetSize(),
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                .build();
+    }
+
+    /**
+     * The preview keeps CameraX's default size choice for the display, only its aspect ratio is pinned.
+     */
+    public ResolutionSelector createPreviewSelector() {
+        return new ResolutionSelector.Builder()
+                .setAspectRatioStrategy(AspectRatioStrategy.RATIO_4_3_FALLBACK_AUTO_STRATEGY)
+                .build();
+    }
+}
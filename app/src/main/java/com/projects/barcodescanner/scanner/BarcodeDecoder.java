@@ -0,0 +1,22 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.List;
+
+/**
+ * A barcode decode engine working on cropped luma frames. Implementations are called from
+ * background threads and may block until the frame is decoded.
+ */
+public interface BarcodeDecoder {
+
+    /**
+     * @return the raw values of the barcodes found in the frame and their formats, empty if none
+     *         were found.
+     * @throws Exception if the engine could not process the frame at all
+     */
+    List<DecodedBarcode> decode(LumaFrame frame) throws Exception;
+
+    /**
+     * Releases the engine. The decoder must not be used afterwards.
+     */
+    void close();
+}
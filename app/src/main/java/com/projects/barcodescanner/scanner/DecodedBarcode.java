@@ -0,0 +1,34 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * A value read from a frame and the symbology it was printed in, which the value alone does not
+ * always tell: a UPC-E and an EAN-8 are both 8 digits.
+ */
+public final class DecodedBarcode {
+
+    private final String value;
+    private final BarcodeFormat format;
+
+    /**
+     * @param format the symbology as a ZXing format, whichever engine read it; null if unknown
+     */
+    public DecodedBarcode(String value, BarcodeFormat format) {
+        this.value = value;
+        this.format = format;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public BarcodeFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public String toString() {
+        return format + ":" + value;
+    }
+}
@@ -0,0 +1,52 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Which decode engine the analyzer uses.
+ */
+public enum DecoderEngine {
+    /** ML Kit, falling back to ZXing while the ML Kit model is unavailable. */
+    ML_KIT("ML Kit"),
+    /** ZXing only; pure Java, no model download. */
+    ZXING("ZXing"),
+    /** Both engines on every frame, first result wins. */
+    RACE("ML Kit + ZXing");
+
+    public static final DecoderEngine DEFAULT = ML_KIT;
+
+    // How long to stay on the fallback engine before trying ML Kit again
+    private static final long ML_KIT_RETRY_MILLIS = 30_000;
+
+    private final String displayName;
+
+    DecoderEngine(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public BarcodeDecoder createDecoder(ScanProfile profile) {
+        return createDecoder(profile, false);
+    }
+
+    /**
+     * @param multiple whether every code in a frame is needed rather than just one. ML Kit always
+     *                 reports all of them; ZXing has to be asked, and searching costs extra time.
+     */
+    public BarcodeDecoder createDecoder(ScanProfile profile, boolean multiple) {
+        switch (this) {
+            case ZXING:
+                return createZxing(profile, multiple);
+            case RACE:
+                return new RacingBarcodeDecoder(new MlKitBarcodeDecoder(profile), createZxing(profile, multiple));
+            case ML_KIT:
+            default:
+                return new FallbackBarcodeDecoder(new MlKitBarcodeDecoder(profile), createZxing(profile, multiple), ML_KIT_RETRY_MILLIS);
+        }
+    }
+
+    private static BarcodeDecoder createZxing(ScanProfile profile, boolean multiple) {
+        return new ZxingBarcodeDecoder(profile.getZxingFormats(), false, multiple);
+    }
+}
@@ -0,0 +1,51 @@
+package com.projects.barcodescanner.scanner;
+
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Uses a primary engine and switches to a fallback while the primary one fails, e.g. because the
+ * unbundled ML Kit model has not finished downloading yet. The primary engine is retried after
+ * {@code retryAfterMillis}.
+ */
+public class FallbackBarcodeDecoder implements BarcodeDecoder {
+
+    private static final String TAG = "FallbackBarcodeDecoder";
+
+    private final BarcodeDecoder primary;
+    private final BarcodeDecoder fallback;
+    private final long retryAfterMillis;
+
+    private volatile long primaryFailedAt = 0;
+
+    public FallbackBarcodeDecoder(BarcodeDecoder primary, BarcodeDecoder fallback, long retryAfterMillis) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    @Override
+    public List<DecodedBarcode> decode(LumaFrame frame) throws Exception {
+        long failedAt = primaryFailedAt;
+        if (failedAt == 0 || System.currentTimeMillis() - failedAt > retryAfterMillis) {
+            try {
+                List<DecodedBarcode> values = primary.decode(frame);
+                primaryFailedAt = 0;
+                return values;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                Log.w(TAG, "Primary decoder unavailable, using fallback", e);
+                primaryFailedAt = System.currentTimeMillis();
+            }
+        }
+        return fallback.decode(frame);
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+        fallback.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Rejects frames that are washed out or too blurred to decode before they reach the decoder,
+ * using the {@link LumaStats} of the crop.
+ *
+ * Contrast has a fixed floor. The sharpness threshold calibrates itself: it tracks the sharpness
+ * of frames that actually decoded and rejects frames well below that, so it follows the device's
+ * optics and the size of the codes being scanned rather than a tuned constant. Until a few frames
+ * have decoded nothing is rejected for blur. If it rejects a long run of frames for blur (the scene
+ * changed to a softer code, say) the threshold is relaxed and a frame is let through. Washed-out
+ * frames say nothing about sharpness, so they neither count towards nor hold up relaxing.
+ */
+public class FocusFilter {
+
+    // 5th-to-95th percentile spread below which a frame is treated as washed out or black
+    private static final int MIN_CONTRAST = 24;
+    // Decoded frames needed before the sharpness threshold is applied
+    private static final int CALIBRATION_HITS = 3;
+    // Weight of the newest decoded frame in the sharpness average
+    private static final double HIT_SMOOTHING = 0.2;
+    // Frames are rejected below this fraction of the average decoded sharpness
+    private static final double THRESHOLD_RATIO = 0.4;
+    // After this many blur rejections in a row the threshold is relaxed by RELAX_FACTOR
+    private static final int MAX_CONSECUTIVE_REJECTS = 10;
+    private static final double RELAX_FACTOR = 0.7;
+
+    private double hitSharpness = 0;
+    private int hits = 0;
+    private int consecutiveRejects = 0;
+
+    private long framesChecked = 0;
+    private long framesRejectedContrast = 0;
+    private long framesRejectedBlur = 0;
+
+    /**
+     * @return true if the frame measured by {@code stats} is worth decoding
+     */
+    public synchronized boolean accept(LumaStats stats) {
+        framesChecked++;
+        if (stats.getContrast() < MIN_CONTRAST) {
+            // A blank wall or a dark shelf; pointing at one must not wear the threshold down
+            framesRejectedContrast++;
+            return false;
+        }
+        boolean blurred = hits >= CALIBRATION_HITS && stats.getSharpness() < hitSharpness * THRESHOLD_RATIO;
+        if (!blurred) {
+            consecutiveRejects = 0;
+            return true;
+        }
+        if (++consecutiveRejects > MAX_CONSECUTIVE_REJECTS) {
+            consecutiveRejects = 0;
+            hitSharpness *= RELAX_FACTOR;
+            return true;
+        }
+        framesRejectedBlur++;
+        return false;
+    }
+
+    /**
+     * Feeds back the outcome of a decode that this filter let through.
+     */
+    public synchronized void onDecodeResult(double sharpness, boolean found) {
+        if (!found) {
+            return;
+        }
+        hitSharpness = hits == 0 ? sharpness : hitSharpness + HIT_SMOOTHING * (sharpness - hitSharpness);
+        hits++;
+    }
+
+    public synchronized double getThreshold() {
+        return hits >= CALIBRATION_HITS ? hitSharpness * THRESHOLD_RATIO : 0;
+    }
+
+    public synchronized long getFramesChecked() { return framesChecked; }
+    public synchronized long getFramesRejected() { return framesRejectedContrast + framesRejectedBlur; }
+    public synchronized long getFramesRejectedContrast() { return framesRejectedContrast; }
+    public synchronized long getFramesRejectedBlur() { return framesRejectedBlur; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(java.util.Locale.US,
+                "focus checked=%d rejected=%d (contrast=%d blur=%d) threshold=%.1f",
+                framesChecked, framesRejectedContrast + framesRejectedBlur, framesRejectedContrast,
+                framesRejectedBlur, getThreshold());
+    }
+}
@@ -0,0 +1,101 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Decides which analysis frames are worth decoding, based on how long decodes actually take.
+ *
+ * A moving average of decode latency sets the analysis rate. On slow devices frames are skipped
+ * on purpose so the decoder is never saturated (which is what makes low-end handhelds run hot and
+ * stutter the preview). Devices that keep up, with decodes no slower than two frame intervals, may
+ * run up to {@code maxInFlight} decodes at once, so a frame that arrives while a slow decode is still
+ * running does not have to wait for it. Beyond that the device is saturated and gets one slot.
+ *
+ * Usage: call {@link #tryAcquire(long)} for every frame; if it returns true, the caller owns a
+ * decode slot and must give it back with {@link #onDecodeFinished(long)} or {@link #release()}.
+ */
+public class FrameScheduler {
+
+    // Weight of the newest sample in the latency moving average
+    private static final double LATENCY_SMOOTHING = 0.2;
+    // Fraction of wall time the decoder may be kept busy, leaving headroom for preview and UI
+    private static final double MAX_DUTY_CYCLE = 0.8;
+
+    private final long minIntervalNanos;
+    private final int maxInFlight;
+
+    private double averageDecodeNanos = 0;
+    private long lastAcceptedNanos = Long.MIN_VALUE / 2;
+    private int inFlight = 0;
+
+    private long framesSeen = 0;
+    private long framesDropped = 0;
+    private long framesDecoded = 0;
+
+    /**
+     * @param minIntervalNanos shortest gap between two analysed frames, i.e. the highest analysis rate
+     * @param maxInFlight      how many decodes may overlap when the device keeps up
+     */
+    public FrameScheduler(long minIntervalNanos, int maxInFlight) {
+        this.minIntervalNanos = minIntervalNanos;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * @return true if this frame should be decoded; the caller then holds a decode slot.
+     */
+    public synchronized boolean tryAcquire(long nowNanos) {
+        framesSeen++;
+        if (inFlight >= allowedInFlight() || nowNanos - lastAcceptedNanos < targetIntervalNanos()) {
+            framesDropped++;
+            return false;
+        }
+        inFlight++;
+        lastAcceptedNanos = nowNanos;
+        return true;
+    }
+
+    /**
+     * Returns a decode slot after a completed decode and feeds its latency into the average.
+     */
+    public synchronized void onDecodeFinished(long latencyNanos) {
+        inFlight = Math.max(0, inFlight - 1);
+        framesDecoded++;
+        if (averageDecodeNanos == 0) {
+            averageDecodeNanos = latencyNanos;
+        } else {
+            averageDecodeNanos += LATENCY_SMOOTHING * (latencyNanos - averageDecodeNanos);
+        }
+    }
+
+    /**
+     * Returns a decode slot without recording a latency, e.g. when the frame could not be read.
+     */
+    public synchronized void release() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    private int allowedInFlight() {
+        // Fast devices pipeline too: the interval floor still caps the rate, and a second slot lets an
+        // occasional slow decode overlap the next frame. Far slower than the interval the device is
+        // saturated and should skip frames instead. Until a decode has been timed, one at a time.
+        boolean pipeline = averageDecodeNanos > 0 && averageDecodeNanos <= 2 * minIntervalNanos;
+        return pipeline ? maxInFlight : 1;
+    }
+
+    private long targetIntervalNanos() {
+        long budgeted = (long) (averageDecodeNanos / allowedInFlight() / MAX_DUTY_CYCLE);
+        return Math.max(minIntervalNanos, budgeted);
+    }
+
+    public synchronized long getFramesSeen() { return framesSeen; }
+    public synchronized long getFramesDropped() { return framesDropped; }
+    public synchronized long getFramesDecoded() { return framesDecoded; }
+    public synchronized double getAverageDecodeMillis() { return averageDecodeNanos / 1e6; }
+    public synchronized double getTargetFps() { return 1e9 / targetIntervalNanos(); }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(java.util.Locale.US,
+                "frames seen=%d dropped=%d decoded=%d avgDecode=%.1fms target=%.1ffps",
+                framesSeen, framesDropped, framesDecoded, averageDecodeNanos / 1e6, 1e9 / targetIntervalNanos());
+    }
+}
@@ -0,0 +1,262 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Helpers for GS1 trade item numbers (EAN-8, UPC-E, UPC-A, EAN-13, GTIN-14).
+ *
+ * The same item reaches the scanner in many spellings: UPC-A "012345678905", EAN-13
+ * "0012345678905", a GTIN-14 with leading zeros, a GS1-128 or DataMatrix element string carrying
+ * AI (01), or a GS1 Digital Link QR code. {@link #canonicalKey(String)} maps all of them to one
+ * key before anything is cached or looked up, and {@link #lookupVariants(String)} lists the
+ * spellings a stored barcode might have been saved under.
+ */
+public final class Gtin {
+
+    // FNC1 separator in GS1 element strings as decoders report it
+    private static final char GROUP_SEPARATOR = '\u001D';
+    private static final String AI_GTIN = "01";
+
+    private Gtin() {
+    }
+
+    /**
+     * @return true if the value is an 8, 12, 13 or 14 digit GTIN whose last digit is a valid
+     *         GS1 mod-10 check digit.
+     */
+    public static boolean hasValidCheckDigit(String value) {
+        if (value == null) {
+            return false;
+        }
+        int length = value.length();
+        if (length != 8 && length != 12 && length != 13 && length != 14) {
+            return false;
+        }
+        int sum = 0;
+        // Weights alternate 3,1,3,... starting from the digit left of the check digit
+        for (int i = length - 2, weight = 3; i >= 0; i--, weight = 4 - weight) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            sum += (c - '0') * weight;
+        }
+        char check = value.charAt(length - 1);
+        return check >= '0' && check <= '9' && (10 - sum % 10) % 10 == check - '0';
+    }
+
+    /**
+     * Like {@link #canonicalKey(String)}, for a value read from a barcode of a known format. A
+     * UPC-E is zero-suppressed UPC-A: its 8 digits look like an EAN-8 but its check digit belongs
+     * to the UPC-A number, so it is expanded to that first. Only EAN and UPC values are rejected
+     * for a bad GTIN check digit; other symbologies carry checks of their own, so a Code 128, ITF
+     * or QR value that is not a valid GTIN is kept as read.
+     * @param format the symbology the value was read from, or null if unknown
+     */
+    public static String canonicalKey(String raw, BarcodeFormat format) {
+        if (raw == null) {
+            return null;
+        }
+        if (format == BarcodeFormat.UPC_E) {
+            String upcA = expandUpcE(raw.trim());
+            return upcA != null ? canonicalKey(upcA) : null;
+        }
+        String key = canonicalKey(raw);
+        if (key != null || format == null || format == BarcodeFormat.EAN_8
+                || format == BarcodeFormat.EAN_13 || format == BarcodeFormat.UPC_A) {
+            return key;
+        }
+        String value = raw.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Maps a scanned value to the key products are stored and cached under.
+     * <ul>
+     *     <li>Anything carrying a GTIN becomes that GTIN as 13 digits (EAN-13) when its indicator
+     *     digit is 0, which covers EAN-8, UPC-A and EAN-13, and as 14 digits otherwise. An
+     *     8-digit value is taken for an EAN-8; see {@link #canonicalKey(String, BarcodeFormat)}
+     *     for UPC-E.</li>
+     *     <li>Values that carry no GTIN (internal Code 128 labels, plain QR text) are only trimmed.</li>
+     * </ul>
+     * @return the key, or null if the value looks like a GTIN but its check digit is wrong,
+     *         i.e. a misread that is not worth a lookup
+     */
+    public static String canonicalKey(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String value = raw.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        String gtin = findGtin(value);
+        if (gtin == null) {
+            return value;
+        }
+        String gtin14 = padTo14(gtin);
+        if (gtin14 == null || !hasValidCheckDigit(gtin14)) {
+            return null;
+        }
+        return gtin14.charAt(0) == '0' ? gtin14.substring(1) : gtin14;
+    }
+
+    /**
+     * @return the spellings a product with this barcode may have been saved under (EAN-8, UPC-A,
+     *         EAN-13, GTIN-14), the given barcode first; for use in an {@code in.(...)} query.
+     *         Barcodes that are not GTINs are returned on their own.
+     */
+    public static List<String> lookupVariants(String barcode) {
+        List<String> variants = new ArrayList<>(5);
+        variants.add(barcode);
+        String key = canonicalKey(barcode);
+        if (key == null || !hasValidCheckDigit(key)) {
+            return variants;
+        }
+        String gtin14 = padTo14(key);
+        addVariant(variants, gtin14);
+        if (gtin14.startsWith("0")) {
+            addVariant(variants, gtin14.substring(1)); // EAN-13
+        }
+        if (gtin14.startsWith("00")) {
+            addVariant(variants, gtin14.substring(2)); // UPC-A
+        }
+        if (gtin14.startsWith("000000")) {
+            addVariant(variants, gtin14.substring(6)); // EAN-8
+        }
+        return variants;
+    }
+
+    /**
+     * Expands an 8-digit UPC-E (number system, six digits, check digit) to the 12-digit UPC-A it
+     * stands for. The last of the six digits says where the zeros were suppressed.
+     * @return the UPC-A, check digit unvalidated, or null if the value is not a UPC-E
+     */
+    static String expandUpcE(String upcE) {
+        if (upcE.length() != 8 || !isDigits(upcE, 0, 8) || (upcE.charAt(0) != '0' && upcE.charAt(0) != '1')) {
+            return null;
+        }
+        String d = upcE.substring(1, 7);
+        String body;
+        switch (d.charAt(5)) {
+            case '0':
+            case '1':
+            case '2':
+                body = d.substring(0, 2) + d.charAt(5) + "0000" + d.substring(2, 5);
+                break;
+            case '3':
+                body = d.substring(0, 3) + "00000" + d.substring(3, 5);
+                break;
+            case '4':
+                body = d.substring(0, 4) + "00000" + d.charAt(4);
+                break;
+            default:
+                body = d.substring(0, 5) + "0000" + d.charAt(5);
+                break;
+        }
+        return upcE.charAt(0) + body + upcE.charAt(7);
+    }
+
+    private static void addVariant(List<String> variants, String variant) {
+        if (!variants.contains(variant)) {
+            variants.add(variant);
+        }
+    }
+
+    /**
+     * @return the GTIN digits the value carries, unvalidated, or null if it carries none
+     */
+    private static String findGtin(String value) {
+        if (isDigits(value, 0, value.length())) {
+            int length = value.length();
+            if (length == 8 || length == 12 || length == 13 || length == 14) {
+                return value;
+            }
+            return elementStringGtin(value);
+        }
+        String lower = value.toLowerCase(Locale.US);
+        if (lower.startsWith("http://") || lower.startsWith("https://")) {
+            return digitalLinkGtin(value);
+        }
+        if (value.startsWith("(01)")) {
+            // Human-readable form, e.g. "(01)09506000134352(17)201225"
+            int end = value.indexOf('(', 4);
+            return digitsOrNull(value.substring(4, end < 0 ? value.length() : end));
+        }
+        // Symbology identifier for GS1-128, GS1 DataMatrix or GS1 QR, and/or a leading FNC1
+        int start = 0;
+        if (value.startsWith("]C1") || value.startsWith("]d2") || value.startsWith("]Q3")) {
+            start = 3;
+        }
+        if (start < value.length() && value.charAt(start) == GROUP_SEPARATOR) {
+            start++;
+        }
+        return start > 0 ? elementStringGtin(value.substring(start)) : null;
+    }
+
+    /**
+     * AI (01) is fixed-length, so it is either the whole element string or followed by further AIs.
+     */
+    private static String elementStringGtin(String value) {
+        if (value.length() >= 16 && value.startsWith(AI_GTIN) && isDigits(value, 2, 16)) {
+            return value.substring(2, 16);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the {@code /01/<gtin>} path segment of a GS1 Digital Link URI, which may sit behind any
+     * path prefix, e.g. {@code https://id.example.com/shop/01/09506000134352/10/ABC?17=201225}.
+     */
+    private static String digitalLinkGtin(String url) {
+        int schemeEnd = url.indexOf("://") + 3;
+        int pathStart = url.indexOf('/', schemeEnd);
+        if (pathStart < 0) {
+            return null;
+        }
+        int pathEnd = url.length();
+        for (char c : new char[]{'?', '#'}) {
+            int i = url.indexOf(c, pathStart);
+            if (i >= 0 && i < pathEnd) {
+                pathEnd = i;
+            }
+        }
+        String[] segments = url.substring(pathStart + 1, pathEnd).split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (segments[i].equals(AI_GTIN) || segments[i].equals("gtin")) {
+                return digitsOrNull(segments[i + 1]);
+            }
+        }
+        return null;
+    }
+
+    private static String padTo14(String digits) {
+        int length = digits.length();
+        if (length < 8 || length > 14) {
+            return null;
+        }
+        StringBuilder padded = new StringBuilder(14);
+        for (int i = length; i < 14; i++) {
+            padded.append('0');
+        }
+        return padded.append(digits).toString();
+    }
+
+    private static String digitsOrNull(String value) {
+        return !value.isEmpty() && isDigits(value, 0, value.length()) ? value : null;
+    }
+
+    private static boolean isDigits(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,137 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running stock count: scanned barcodes with per-barcode counts, and a queue of codes whose
+ * product still has to be looked up. Lookups are taken from the queue in batches so that a whole
+ * shelf resolves in a handful of requests instead of one per item.
+ */
+public class InventorySession {
+
+    public enum Status { PENDING, FOUND, NOT_FOUND }
+
+    public static class Item {
+        private final String barcode;
+        private int count;
+        private long lastSeenMillis;
+        private Status status = Status.PENDING;
+        private String productName;
+        private String imageUrl;
+
+        Item(String barcode) {
+            this.barcode = barcode;
+        }
+
+        private Item(Item other) {
+            this.barcode = other.barcode;
+            this.count = other.count;
+            this.lastSeenMillis = other.lastSeenMillis;
+            this.status = other.status;
+            this.productName = other.productName;
+            this.imageUrl = other.imageUrl;
+        }
+
+        public String getBarcode() { return barcode; }
+        public int getCount() { return count; }
+        public Status getStatus() { return status; }
+        public String getProductName() { return productName; }
+        public String getImageUrl() { return imageUrl; }
+    }
+
+    private final long repeatGapMillis;
+    private final Map<String, Item> items = new LinkedHashMap<>();
+    private final LinkedHashSet<String> pending = new LinkedHashSet<>();
+
+    /**
+     * @param repeatGapMillis how long a code has to be out of view before reading it again
+     *                        counts as another unit rather than the same one still in front of the camera
+     */
+    public InventorySession(long repeatGapMillis) {
+        this.repeatGapMillis = repeatGapMillis;
+    }
+
+    /**
+     * Records a committed scan.
+     * @return true if it was counted, false if it is the same unit still in view
+     */
+    public synchronized boolean add(String barcode, long nowMillis) {
+        Item item = items.get(barcode);
+        if (item == null) {
+            item = new Item(barcode);
+            items.put(barcode, item);
+            pending.add(barcode);
+        } else if (nowMillis - item.lastSeenMillis < repeatGapMillis) {
+            item.lastSeenMillis = nowMillis;
+            return false;
+        }
+        item.count++;
+        item.lastSeenMillis = nowMillis;
+        return true;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Takes up to {@code maxSize} unresolved barcodes off the lookup queue.
+     */
+    public synchronized List<String> drainBatch(int maxSize) {
+        List<String> batch = new ArrayList<>(Math.min(maxSize, pending.size()));
+        Iterator<String> it = pending.iterator();
+        while (it.hasNext() && batch.size() < maxSize) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    /**
+     * Puts barcodes back on the queue after a failed lookup.
+     */
+    public synchronized void requeue(Collection<String> barcodes) {
+        pending.addAll(barcodes);
+    }
+
+    public synchronized void markFound(String barcode, String productName, String imageUrl) {
+        Item item = items.get(barcode);
+        if (item != null) {
+            item.status = Status.FOUND;
+            item.productName = productName;
+            item.imageUrl = imageUrl;
+        }
+    }
+
+    public synchronized void markNotFound(String barcode) {
+        Item item = items.get(barcode);
+        if (item != null) {
+            item.status = Status.NOT_FOUND;
+        }
+    }
+
+    /**
+     * @return a copy of all items, most recently added first.
+     */
+    public synchronized List<Item> snapshot() {
+        List<Item> copy = new ArrayList<>(items.size());
+        for (Item item : items.values()) {
+            copy.add(0, new Item(item));
+        }
+        return copy;
+    }
+
+    public synchronized int getTotalUnits() {
+        int total = 0;
+        for (Item item : items.values()) {
+            total += item.count;
+        }
+        return total;
+    }
+}
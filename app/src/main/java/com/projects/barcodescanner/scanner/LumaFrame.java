@@ -0,0 +1,74 @@
+package com.projects.barcodescanner.scanner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A cropped grayscale analysis frame laid out as NV21: {@code width * height} luma bytes followed
+ * by an interleaved chroma plane that is kept neutral. Decoders only look at the luma, but the
+ * NV21 layout lets the same buffer go straight into ML Kit's {@code InputImage.fromByteArray}.
+ *
+ * Frames are recycled through a {@link LumaFramePool}; only the rotation and timestamp change
+ * between uses, the buffer and its size are fixed.
+ */
+public class LumaFrame {
+
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private int rotationDegrees;
+    private long timestampNanos;
+
+    public LumaFrame(int width, int height, int rotationDegrees, long timestampNanos) {
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+        this.data = new byte[width * height * 3 / 2];
+        // Decoders never write the chroma plane, so it only has to be filled once per buffer
+        Arrays.fill(data, width * height, data.length, NEUTRAL_CHROMA);
+    }
+
+    void reset(int rotationDegrees, long timestampNanos) {
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+    }
+
+    /**
+     * Copies a {@code width x height} window starting at ({@code left}, {@code top}) out of a
+     * camera Y plane, honouring its row and pixel stride. Reads the plane in place: its position
+     * is moved while copying and rewound afterwards, so no view buffer is allocated.
+     */
+    public void copyFromPlane(ByteBuffer plane, int rowStride, int pixelStride, int left, int top) {
+        if (pixelStride == 1) {
+            for (int row = 0; row < height; row++) {
+                plane.position((top + row) * rowStride + left);
+                plane.get(data, row * width, width);
+            }
+            plane.rewind();
+        } else {
+            for (int row = 0; row < height; row++) {
+                int rowStart = (top + row) * rowStride + left * pixelStride;
+                int out = row * width;
+                for (int col = 0; col < width; col++) {
+                    data[out + col] = plane.get(rowStart + col * pixelStride);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the luma of a frame of the same size; the chroma plane is neutral in both already.
+     */
+    void copyFrom(LumaFrame other) {
+        System.arraycopy(other.data, 0, data, 0, width * height);
+    }
+
+    public byte[] getData() { return data; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getRotationDegrees() { return rotationDegrees; }
+    public long getTimestampNanos() { return timestampNanos; }
+}
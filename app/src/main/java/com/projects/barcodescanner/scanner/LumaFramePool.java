@@ -0,0 +1,53 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.ArrayDeque;
+
+/**
+ * Recycles {@link LumaFrame} buffers so that steady-state scanning allocates no frame memory.
+ *
+ * The crop size only changes when the viewfinder or the analysis resolution changes, so the pool
+ * holds buffers of a single size. Asking for a different size drops the old buffers.
+ */
+public class LumaFramePool {
+
+    private final int capacity;
+    private final ArrayDeque<LumaFrame> free;
+    private int width = -1, height = -1;
+    private long allocations = 0;
+
+    /**
+     * @param capacity how many idle buffers to keep; one per decode in flight plus one being filled
+     */
+    public LumaFramePool(int capacity) {
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    public synchronized LumaFrame acquire(int width, int height, int rotationDegrees, long timestampNanos) {
+        if (width != this.width || height != this.height) {
+            free.clear();
+            this.width = width;
+            this.height = height;
+        }
+        LumaFrame frame = free.pollFirst();
+        if (frame == null) {
+            allocations++;
+            return new LumaFrame(width, height, rotationDegrees, timestampNanos);
+        }
+        frame.reset(rotationDegrees, timestampNanos);
+        return frame;
+    }
+
+    public synchronized void release(LumaFrame frame) {
+        if (frame.getWidth() == width && frame.getHeight() == height && free.size() < capacity) {
+            free.addFirst(frame);
+        }
+    }
+
+    /**
+     * @return how many buffers were allocated in total; should stop growing once scanning settles.
+     */
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+}
@@ -0,0 +1,106 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.Arrays;
+
+/**
+ * Brightness, contrast and sharpness of a luma frame, measured on a subsampled grid so it costs a
+ * small fraction of a decode. An instance is reused frame after frame and never allocates after
+ * construction; it is not thread-safe, so each decode thread keeps its own.
+ *
+ * Sharpness is the mean squared gradient (difference to the right and lower neighbour) at the grid
+ * points. Defocus and motion blur flatten exactly the bar edges a decoder needs, so blurred frames
+ * score a fraction of sharp ones of the same scene.
+ */
+public class LumaStats {
+
+    public static final int HISTOGRAM_BINS = 64;
+    private static final int BIN_SHIFT = 2; // 256 levels / 64 bins
+
+    private final int step;
+    private final int[] histogram = new int[HISTOGRAM_BINS];
+    private int samples;
+    private double meanLuma;
+    private double sharpness;
+
+    /**
+     * @param step grid spacing in pixels; 4 samples one pixel in sixteen
+     */
+    public LumaStats(int step) {
+        this.step = Math.max(1, step);
+    }
+
+    /**
+     * Measures the luma plane of a frame, replacing the previous results.
+     */
+    public void compute(LumaFrame frame) {
+        compute(frame.getData(), frame.getWidth(), frame.getHeight());
+    }
+
+    public void compute(byte[] luma, int width, int height) {
+        Arrays.fill(histogram, 0);
+        long sum = 0;
+        long gradientEnergy = 0;
+        int count = 0;
+        // Stop one short of the edges so every grid point has a right and lower neighbour
+        for (int y = step / 2; y < height - 1; y += step) {
+            int row = y * width;
+            for (int x = step / 2; x < width - 1; x += step) {
+                int i = row + x;
+                int p = luma[i] & 0xff;
+                int dx = (luma[i + 1] & 0xff) - p;
+                int dy = (luma[i + width] & 0xff) - p;
+                gradientEnergy += dx * dx + dy * dy;
+                sum += p;
+                histogram[p >> BIN_SHIFT]++;
+                count++;
+            }
+        }
+        samples = count;
+        meanLuma = count == 0 ? 0 : (double) sum / count;
+        sharpness = count == 0 ? 0 : (double) gradientEnergy / count;
+    }
+
+    /**
+     * @return the luma level (0-255) below which the given percentage of samples fall,
+     *         at the histogram's resolution of four levels
+     */
+    public int percentile(double percent) {
+        if (samples == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(samples * percent / 100.0);
+        long seen = 0;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            seen += histogram[bin];
+            if (seen >= target) {
+                return (bin << BIN_SHIFT) + (1 << BIN_SHIFT) / 2;
+            }
+        }
+        return 255;
+    }
+
+    /**
+     * @return the spread between the 5th and 95th percentile; washed-out and very dark frames are low
+     */
+    public int getContrast() {
+        return percentile(95) - percentile(5);
+    }
+
+    /**
+     * @return the fraction of samples at or above the given luma level, e.g. to spot blown highlights
+     */
+    public double fractionAtOrAbove(int level) {
+        if (samples == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int bin = level >> BIN_SHIFT; bin < HISTOGRAM_BINS; bin++) {
+            count += histogram[bin];
+        }
+        return (double) count / samples;
+    }
+
+    public int getSamples() { return samples; }
+    public double getMeanLuma() { return meanLuma; }
+    public double getSharpness() { return sharpness; }
+}
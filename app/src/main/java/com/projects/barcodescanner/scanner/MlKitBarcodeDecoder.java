@@ -0,0 +1,46 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes frames with the ML Kit barcode model.
+ */
+public class MlKitBarcodeDecoder implements BarcodeDecoder {
+
+    private final BarcodeScanner scanner;
+
+    public MlKitBarcodeDecoder(ScanProfile profile) {
+        this.scanner = BarcodeScanning.getClient(profile.toScannerOptions());
+    }
+
+    @Override
+    public List<DecodedBarcode> decode(LumaFrame frame) throws Exception {
+        InputImage inputImage = InputImage.fromByteArray(
+                frame.getData(),
+                frame.getWidth(),
+                frame.getHeight(),
+                frame.getRotationDegrees(),
+                InputImage.IMAGE_FORMAT_NV21
+        );
+        List<Barcode> barcodes = Tasks.await(scanner.process(inputImage));
+        List<DecodedBarcode> values = new ArrayList<>(barcodes.size());
+        for (Barcode barcode : barcodes) {
+            if (barcode.getRawValue() != null) {
+                values.add(new DecodedBarcode(barcode.getRawValue(), ScanProfile.toZxingFormat(barcode.getFormat())));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
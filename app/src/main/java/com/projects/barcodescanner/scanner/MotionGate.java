@@ -0,0 +1,156 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Skips analysis frames captured while the phone is moving, since those are almost always too
+ * blurred to decode. It is fed from the accelerometer (linear motion, gravity removed) and, where
+ * the device has one, the gyroscope (angular motion).
+ *
+ * The thresholds adapt to the user's resting hand tremor: a slow moving average of recent motion
+ * is scaled up and clamped to a fixed range, so a steady hand on a table and a hand-held scan in a
+ * moving vehicle both end up gating only the real sweeps. After a motion spike frames stay gated
+ * for a short settle time. If the gate has been closed for too long one frame is let through
+ * anyway, so a user who never holds perfectly still can still scan.
+ *
+ * All timestamps are {@link System#nanoTime()}; sensor samples are stamped on arrival.
+ */
+public class MotionGate {
+
+    // Weight of the newest sample in the gravity estimate (low-pass on the raw accelerometer)
+    private static final float GRAVITY_SMOOTHING = 0.1f;
+    // Weight of the newest sample in the resting-motion baseline
+    private static final float BASELINE_SMOOTHING = 0.02f;
+    // How far above the baseline motion has to be before frames are gated
+    private static final float BASELINE_MULTIPLIER = 3f;
+
+    // Threshold ranges, linear in m/s^2 and angular in rad/s
+    private static final float MIN_LINEAR_THRESHOLD = 0.8f;
+    private static final float MAX_LINEAR_THRESHOLD = 3.0f;
+    private static final float MIN_ANGULAR_THRESHOLD = 0.5f;
+    private static final float MAX_ANGULAR_THRESHOLD = 1.5f;
+
+    // Frames are gated for this long after the last sample above threshold
+    private static final long SETTLE_NANOS = 80_000_000L;
+    // Without a sample for this long the sensors are considered off and nothing is gated
+    private static final long STALE_NANOS = 500_000_000L;
+    // Roughly half a second of frames at 30fps
+    private static final int MAX_CONSECUTIVE_SKIPS = 15;
+
+    private final float[] gravity = new float[3];
+    private boolean hasGravity = false;
+
+    private float linearBaseline = 0;
+    private float angularBaseline = 0;
+    private long lastSampleNanos = Long.MIN_VALUE / 2;
+    private long lastLinearSpikeNanos = Long.MIN_VALUE / 2;
+    private long lastAngularSpikeNanos = Long.MIN_VALUE / 2;
+    private int consecutiveSkips = 0;
+
+    private long framesChecked = 0;
+    private long framesSkippedLinear = 0;
+    private long framesSkippedAngular = 0;
+    private long framesForced = 0;
+
+    /**
+     * Feeds one accelerometer sample, in m/s^2 including gravity.
+     */
+    public synchronized void onAccelerometer(float x, float y, float z, long nowNanos) {
+        if (!hasGravity) {
+            gravity[0] = x;
+            gravity[1] = y;
+            gravity[2] = z;
+            hasGravity = true;
+        } else {
+            gravity[0] += GRAVITY_SMOOTHING * (x - gravity[0]);
+            gravity[1] += GRAVITY_SMOOTHING * (y - gravity[1]);
+            gravity[2] += GRAVITY_SMOOTHING * (z - gravity[2]);
+        }
+        float linear = magnitude(x - gravity[0], y - gravity[1], z - gravity[2]);
+        linearBaseline += BASELINE_SMOOTHING * (linear - linearBaseline);
+        if (linear > getLinearThreshold()) {
+            lastLinearSpikeNanos = nowNanos;
+        }
+        lastSampleNanos = nowNanos;
+    }
+
+    /**
+     * Feeds one gyroscope sample, in rad/s.
+     */
+    public synchronized void onGyroscope(float x, float y, float z, long nowNanos) {
+        float angular = magnitude(x, y, z);
+        angularBaseline += BASELINE_SMOOTHING * (angular - angularBaseline);
+        if (angular > getAngularThreshold()) {
+            lastAngularSpikeNanos = nowNanos;
+        }
+        lastSampleNanos = nowNanos;
+    }
+
+    /**
+     * @return true if a frame arriving now is likely sharp enough to be worth decoding
+     */
+    public synchronized boolean allowFrame(long nowNanos) {
+        framesChecked++;
+        if (nowNanos - lastSampleNanos > STALE_NANOS) {
+            consecutiveSkips = 0;
+            return true;
+        }
+        boolean linear = nowNanos - lastLinearSpikeNanos < SETTLE_NANOS;
+        boolean angular = nowNanos - lastAngularSpikeNanos < SETTLE_NANOS;
+        if (!linear && !angular) {
+            consecutiveSkips = 0;
+            return true;
+        }
+        if (consecutiveSkips >= MAX_CONSECUTIVE_SKIPS) {
+            framesForced++;
+            consecutiveSkips = 0;
+            return true;
+        }
+        consecutiveSkips++;
+        if (angular) {
+            framesSkippedAngular++;
+        } else {
+            framesSkippedLinear++;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the motion history, e.g. when the sensors are re-registered after a pause.
+     */
+    public synchronized void reset() {
+        hasGravity = false;
+        lastSampleNanos = Long.MIN_VALUE / 2;
+        lastLinearSpikeNanos = Long.MIN_VALUE / 2;
+        lastAngularSpikeNanos = Long.MIN_VALUE / 2;
+        consecutiveSkips = 0;
+    }
+
+    private float getLinearThreshold() {
+        return clamp(linearBaseline * BASELINE_MULTIPLIER, MIN_LINEAR_THRESHOLD, MAX_LINEAR_THRESHOLD);
+    }
+
+    private float getAngularThreshold() {
+        return clamp(angularBaseline * BASELINE_MULTIPLIER, MIN_ANGULAR_THRESHOLD, MAX_ANGULAR_THRESHOLD);
+    }
+
+    private static float magnitude(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public synchronized long getFramesChecked() { return framesChecked; }
+    public synchronized long getFramesSkipped() { return framesSkippedLinear + framesSkippedAngular; }
+    public synchronized long getFramesSkippedLinear() { return framesSkippedLinear; }
+    public synchronized long getFramesSkippedAngular() { return framesSkippedAngular; }
+    public synchronized long getFramesForced() { return framesForced; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(java.util.Locale.US,
+                "motion checked=%d skipped=%d (linear=%d angular=%d) forced=%d threshold=%.2fm/s2 %.2frad/s",
+                framesChecked, framesSkippedLinear + framesSkippedAngular, framesSkippedLinear,
+                framesSkippedAngular, framesForced, getLinearThreshold(), getAngularThreshold());
+    }
+}
@@ -0,0 +1,117 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs two engines on the same frame in parallel and returns whichever finds a barcode first.
+ *
+ * Neither engine can be stopped once it has started (ML Kit keeps processing after the wait for it
+ * is interrupted), so the slower one is left to finish and its result discarded. Each engine decodes
+ * its own copy of the frame, held until that engine returns, so the caller may recycle the frame as
+ * soon as this call returns. An engine still busy with as many earlier frames as decodes can overlap
+ * sits out the next race rather than queueing work behind it.
+ */
+public class RacingBarcodeDecoder implements BarcodeDecoder {
+
+    // Decodes the pipeline may run at once, see FrameScheduler
+    private static final int MAX_RACES = 2;
+
+    private final BarcodeDecoder first;
+    private final BarcodeDecoder second;
+    private final Semaphore firstSlots = new Semaphore(MAX_RACES);
+    private final Semaphore secondSlots = new Semaphore(MAX_RACES);
+    // One thread per engine per race, plus one for close()
+    private final ExecutorService executor = Executors.newFixedThreadPool(2 * MAX_RACES + 1);
+    private final LumaFramePool copies = new LumaFramePool(2 * MAX_RACES);
+
+    public RacingBarcodeDecoder(BarcodeDecoder first, BarcodeDecoder second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public List<DecodedBarcode> decode(LumaFrame frame) throws Exception {
+        ExecutorCompletionService<List<DecodedBarcode>> race = new ExecutorCompletionService<>(executor);
+        int racing = 0;
+        if (start(race, first, firstSlots, frame)) {
+            racing++;
+        }
+        if (start(race, second, secondSlots, frame)) {
+            racing++;
+        }
+        ExecutionException failure = null;
+        int failures = 0;
+        for (int i = 0; i < racing; i++) {
+            try {
+                List<DecodedBarcode> values = race.take().get();
+                if (!values.isEmpty()) {
+                    return values;
+                }
+            } catch (ExecutionException e) {
+                failure = e;
+                failures++;
+            }
+        }
+        if (racing > 0 && failures == racing) {
+            // No engine could look at the frame
+            throw failure;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Starts an engine on a copy of the frame, unless it is still busy with earlier frames.
+     * @return true if it was started
+     */
+    private boolean start(ExecutorCompletionService<List<DecodedBarcode>> race, BarcodeDecoder engine,
+                          Semaphore slots, LumaFrame frame) {
+        if (!slots.tryAcquire()) {
+            return false;
+        }
+        LumaFrame copy = copies.acquire(frame.getWidth(), frame.getHeight(), frame.getRotationDegrees(),
+                frame.getTimestampNanos());
+        copy.copyFrom(frame);
+        Callable<List<DecodedBarcode>> decode = () -> {
+            try {
+                return engine.decode(copy);
+            } finally {
+                copies.release(copy);
+                slots.release();
+            }
+        };
+        try {
+            race.submit(decode);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+            copies.release(copy);
+            slots.release();
+            return false;
+        }
+    }
+
+    /**
+     * Closes the engines once the decodes still running on them have finished, without waiting.
+     */
+    @Override
+    public void close() {
+        try {
+            executor.execute(() -> {
+                firstSlots.acquireUninterruptibly(MAX_RACES);
+                secondSlots.acquireUninterruptibly(MAX_RACES);
+                first.close();
+                second.close();
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
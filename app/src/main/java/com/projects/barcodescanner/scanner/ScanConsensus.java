@@ -0,0 +1,96 @@
+package com.projects.barcodescanner.scanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sliding-window vote over the values decoded from consecutive frames. A value is only committed
+ * once it has been read in {@code requiredVotes} of the last {@code windowSize} frames, which
+ * filters out one-frame misreads of damaged labels before they cost a network lookup.
+ *
+ * Frames in which nothing was decoded should still be offered (as {@code null}) so that old
+ * votes age out of the window. A frame may also carry several values ({@link #offerAll}); each one
+ * is voted on separately.
+ */
+public class ScanConsensus {
+
+    private final int windowSize;
+    private final int requiredVotes;
+    private final boolean trustCheckDigit;
+
+    private final List<?>[] window;
+    private int next = 0;
+
+    /**
+     * @param windowSize      number of recent frames considered (M)
+     * @param requiredVotes   how many of those frames must agree on a value (N)
+     * @param trustCheckDigit commit a GTIN with a valid check digit on its first read
+     */
+    public ScanConsensus(int windowSize, int requiredVotes, boolean trustCheckDigit) {
+        if (windowSize < 1 || requiredVotes < 1 || requiredVotes > windowSize) {
+            throw new IllegalArgumentException("Need 1 <= requiredVotes <= windowSize, got "
+                    + requiredVotes + " of " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.requiredVotes = requiredVotes;
+        this.trustCheckDigit = trustCheckDigit;
+        this.window = new List<?>[windowSize];
+    }
+
+    /**
+     * Records the value read from one frame.
+     * @param value the decoded value, or null if the frame produced nothing
+     * @return the value once it has enough votes, otherwise null
+     */
+    public synchronized String offer(String value) {
+        List<String> committed = offerAll(value == null ? Collections.emptyList() : Collections.singletonList(value));
+        return committed.isEmpty() ? null : committed.get(0);
+    }
+
+    /**
+     * Records every value read from one frame. The list is kept as the frame's vote and must not
+     * be modified afterwards.
+     * @return the values from this frame that now have enough votes, possibly empty
+     */
+    public synchronized List<String> offerAll(List<String> values) {
+        window[next] = values;
+        next = (next + 1) % windowSize;
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> committed = null;
+        for (String value : values) {
+            if (hasEnoughVotes(value)) {
+                if (committed == null) {
+                    committed = new ArrayList<>(values.size());
+                }
+                committed.add(value);
+            }
+        }
+        return committed == null ? Collections.emptyList() : committed;
+    }
+
+    private boolean hasEnoughVotes(String value) {
+        if (trustCheckDigit && Gtin.hasValidCheckDigit(value)) {
+            return true;
+        }
+        int votes = 0;
+        for (List<?> frame : window) {
+            if (frame != null && frame.contains(value) && ++votes >= requiredVotes) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clears all votes, e.g. after a value was committed, so the next scan starts fresh.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < windowSize; i++) {
+            window[i] = null;
+        }
+        next = 0;
+    }
+}
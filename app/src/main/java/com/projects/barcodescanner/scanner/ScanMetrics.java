@@ -0,0 +1,74 @@
+package com.projects.barcodescanner.scanner;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-stage latency of the scan pipeline for one scanning session, from frame copy through
+ * decoding and the product lookup to the result on screen.
+ */
+public class ScanMetrics {
+
+    public enum Stage {
+        /** Copying the viewfinder crop out of the camera frame. */
+        FRAME_COPY,
+        /** Measuring brightness, contrast and sharpness of the crop. */
+        FRAME_STATS,
+        /** One decoder call on one frame. */
+        DECODE,
+        /** Product lookup, from the request until the product is known, from the cache or the network. */
+        LOOKUP,
+        /** Parsing a product lookup response into a product; part of LOOKUP when it went to the network. */
+        PARSE,
+        /** From posting the result to the UI thread until the bottom sheet is shown. */
+        RESULT_UI,
+        /** From the moment a barcode value is committed until its result is on screen. */
+        SCAN_TO_RESULT
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    public ScanMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).recordNanos(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    public void writeReport(Writer out) throws IOException {
+        out.write(String.format(Locale.US, "%-15s %7s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean_ms", "p50_ms", "p95_ms", "p99_ms", "max_ms"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = histograms.get(stage);
+            out.write(String.format(Locale.US, "%-15s %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    stage.name(), h.getCount(), h.meanMillis(),
+                    h.percentileMillis(50), h.percentileMillis(95), h.percentileMillis(99), h.maxMillis()));
+        }
+    }
+
+    /**
+     * Writes the report to a file, replacing an earlier dump of the same session.
+     */
+    public void dumpTo(File file) throws IOException {
+        try (Writer out = new FileWriter(file)) {
+            writeReport(out);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * What the scanner does with a committed barcode.
+ */
+public enum ScanMode {
+    /** Pause, look the product up and show it in a bottom sheet. */
+    SINGLE("Single scan"),
+    /** Keep scanning; count each code and resolve products in batches into a running list. */
+    INVENTORY("Inventory"),
+    /** Keep scanning; collect every distinct code in view, e.g. a tray or shelf row, and resolve them together. */
+    MULTI("Multi capture");
+
+    private final String displayName;
+
+    ScanMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,352 @@
+package com.projects.barcodescanner.scanner;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The device-independent part of the scanner: crops a camera Y plane to the viewfinder, decodes it
+ * and votes on the result. {@code CameraScannerActivity} feeds it live frames; the replay harness
+ * in the unit tests feeds it recorded ones, so both exercise exactly the same code.
+ *
+ * A frame goes through {@link #tryBeginFrame(long)}, {@link #extractFrame} and then
+ * {@link #processFrame(LumaFrame)}, usually on a decode thread. Committed values are reported
+ * to the {@link Listener} on that thread.
+ */
+public class ScanPipeline {
+
+    // Spacing of the grid the frame statistics are sampled on
+    private static final int STATS_GRID_STEP = 4;
+
+    public interface Listener {
+        void onBarcodeCommitted(String value);
+    }
+
+    private final ScanRegion region;
+    private final LumaFramePool framePool;
+    private final FrameScheduler scheduler;
+    private final ScanConsensus consensus;
+    private final ScanMetrics metrics;
+    private final Listener listener;
+
+    // The decoder in use, and how many decodes are running on each decoder swapped out of it
+    private final Object decoderLock = new Object();
+    private BarcodeDecoder decoder;
+    private final Map<BarcodeDecoder, Integer> decodesRunning = new IdentityHashMap<>();
+    private final Set<BarcodeDecoder> retiredDecoders = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile MotionGate motionGate;
+    private volatile FocusFilter focusFilter;
+    private volatile TorchController torchController;
+    // One per decode thread, since decodes may overlap
+    private final ThreadLocal<LumaStats> frameStats = new ThreadLocal<LumaStats>() {
+        @Override
+        protected LumaStats initialValue() {
+            return new LumaStats(STATS_GRID_STEP);
+        }
+    };
+    private volatile boolean pauseOnCommit = true;
+    private volatile boolean multiValue = false;
+    // Set while a committed result is being handled; frames are dropped until resume()
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    private final AtomicLong rejectedReads = new AtomicLong();
+
+    public ScanPipeline(BarcodeDecoder decoder, ScanRegion region, LumaFramePool framePool,
+                        FrameScheduler scheduler, ScanConsensus consensus, ScanMetrics metrics,
+                        Listener listener) {
+        this.decoder = decoder;
+        this.region = region;
+        this.framePool = framePool;
+        this.scheduler = scheduler;
+        this.consensus = consensus;
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    /**
+     * @return true if a frame arriving now should be decoded. The caller then owns a decode slot
+     *         that is given back by {@link #processFrame} or {@link #abandonFrame}.
+     */
+    public boolean tryBeginFrame(long nowNanos) {
+        if (paused.get()) {
+            return false;
+        }
+        // Blurred frames are rejected before they take a decode slot or get copied
+        MotionGate gate = motionGate;
+        if (gate != null && !gate.allowFrame(nowNanos)) {
+            return false;
+        }
+        return scheduler.tryAcquire(nowNanos);
+    }
+
+    /**
+     * Copies the viewfinder region of a camera Y plane into a pooled frame.
+     */
+    public LumaFrame extractFrame(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                  int imageWidth, int imageHeight, int rotationDegrees, long timestampNanos) {
+        long start = System.nanoTime();
+        region.mapToImage(imageWidth, imageHeight, rotationDegrees);
+        LumaFrame frame = framePool.acquire(region.getWidth(), region.getHeight(), rotationDegrees, timestampNanos);
+        frame.copyFromPlane(yPlane, rowStride, pixelStride, region.getLeft(), region.getTop());
+        metrics.record(ScanMetrics.Stage.FRAME_COPY, System.nanoTime() - start);
+        return frame;
+    }
+
+    /**
+     * Gives back the decode slot (and the frame, if one was extracted) without decoding.
+     */
+    public void abandonFrame(LumaFrame frame) {
+        if (frame != null) {
+            framePool.release(frame);
+        }
+        scheduler.release();
+    }
+
+    /**
+     * Decodes a frame, returns it to the pool and runs the result through the consensus vote.
+     * @return the committed value, or null if this frame did not complete a vote
+     * @throws Exception if the decoder failed; the frame and decode slot are released either way
+     */
+    public String processFrame(LumaFrame frame) throws Exception {
+        FocusFilter filter = focusFilter;
+        TorchController torch = torchController;
+        LumaStats stats = null;
+        if (filter != null || torch != null) {
+            long statsStart = System.nanoTime();
+            stats = frameStats.get();
+            stats.compute(frame);
+            metrics.record(ScanMetrics.Stage.FRAME_STATS, System.nanoTime() - statsStart);
+            if (torch != null) {
+                // Before filtering: the frames too dark to decode are the ones the torch is for
+                torch.onFrameStats(stats, statsStart);
+            }
+        }
+        if (filter != null) {
+            if (!filter.accept(stats)) {
+                // Not fed to the consensus: a frame nobody looked at is no vote either way
+                abandonFrame(frame);
+                return null;
+            }
+        }
+
+        BarcodeDecoder engine = acquireDecoder();
+        if (engine == null) {
+            abandonFrame(frame); // Shutting down
+            return null;
+        }
+        long decodeStart = System.nanoTime();
+        List<DecodedBarcode> decoded;
+        try {
+            decoded = engine.decode(frame);
+        } catch (Exception e) {
+            scheduler.release();
+            throw e;
+        } finally {
+            framePool.release(frame);
+            releaseDecoder(engine);
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+        scheduler.onDecodeFinished(decodeNanos);
+        metrics.record(ScanMetrics.Stage.DECODE, decodeNanos);
+        if (filter != null) {
+            filter.onDecodeResult(stats.getSharpness(), !decoded.isEmpty());
+        }
+
+        if (paused.get()) {
+            // A result from an overlapping decode is already being handled
+            return null;
+        }
+        // Votes are cast on canonical keys, so UPC-A and EAN-13 reads of one label agree
+        List<String> values = canonicalize(decoded);
+        if (multiValue) {
+            return commitAll(consensus.offerAll(values));
+        }
+        String value = consensus.offer(values.isEmpty() ? null : values.get(0));
+        if (value == null) {
+            return null;
+        }
+        if (pauseOnCommit && !paused.compareAndSet(false, true)) {
+            return null;
+        }
+        consensus.reset();
+        listener.onBarcodeCommitted(value);
+        return value;
+    }
+
+    /**
+     * Maps decoded values to {@link Gtin#canonicalKey} keys and drops EAN/UPC reads with a bad check digit.
+     */
+    private List<String> canonicalize(List<DecodedBarcode> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>(values.size());
+        for (DecodedBarcode value : values) {
+            String key = Gtin.canonicalKey(value.getValue(), value.getFormat());
+            if (key == null) {
+                rejectedReads.incrementAndGet();
+            } else if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private String commitAll(List<String> committed) {
+        // Votes are kept: the other codes in view are still being counted. The listener is
+        // expected to ignore values it has already seen.
+        for (String value : committed) {
+            listener.onBarcodeCommitted(value);
+        }
+        return committed.isEmpty() ? null : committed.get(0);
+    }
+
+    /**
+     * Resumes analysis after a committed result has been handled.
+     */
+    public void resume() {
+        consensus.reset();
+        paused.set(false);
+    }
+
+    public boolean isPaused() {
+        return paused.get();
+    }
+
+    /**
+     * @param pauseOnCommit true to stop analysing after each committed value until {@link #resume()},
+     *                      false to keep scanning continuously
+     */
+    public void setPauseOnCommit(boolean pauseOnCommit) {
+        this.pauseOnCommit = pauseOnCommit;
+        consensus.reset();
+    }
+
+    /**
+     * @param multiValue true to vote on every value a frame decodes to rather than only the first;
+     *                   implies scanning continuously
+     */
+    public void setMultiValue(boolean multiValue) {
+        this.multiValue = multiValue;
+        consensus.reset();
+    }
+
+    /**
+     * Swaps the decode engine. The previous one is closed here, as soon as the decodes still
+     * running on it have finished; overlapping decodes may be using it right now.
+     * @param decoder the new engine, or null to stop decoding for good
+     */
+    public void setDecoder(BarcodeDecoder decoder) {
+        BarcodeDecoder old;
+        synchronized (decoderLock) {
+            old = this.decoder;
+            this.decoder = decoder;
+            if (old == null || old == decoder) {
+                return;
+            }
+            if (decodesRunning.containsKey(old)) {
+                retiredDecoders.add(old);
+                return;
+            }
+        }
+        old.close();
+    }
+
+    /**
+     * @return the current decoder, counted as in use until {@link #releaseDecoder}; null if none
+     */
+    private BarcodeDecoder acquireDecoder() {
+        synchronized (decoderLock) {
+            BarcodeDecoder current = decoder;
+            if (current != null) {
+                Integer running = decodesRunning.get(current);
+                decodesRunning.put(current, running == null ? 1 : running + 1);
+            }
+            return current;
+        }
+    }
+
+    private void releaseDecoder(BarcodeDecoder used) {
+        synchronized (decoderLock) {
+            int running = decodesRunning.get(used) - 1;
+            if (running > 0) {
+                decodesRunning.put(used, running);
+                return;
+            }
+            decodesRunning.remove(used);
+            if (!retiredDecoders.remove(used)) {
+                return;
+            }
+        }
+        // Last decode on a decoder that was swapped out meanwhile
+        used.close();
+    }
+
+    /**
+     * @param motionGate gate consulted for every frame, or null to decode regardless of motion
+     */
+    public void setMotionGate(MotionGate motionGate) {
+        this.motionGate = motionGate;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    /**
+     * @param focusFilter filter that drops washed-out and blurred crops before decoding,
+     *                    or null to decode every frame
+     */
+    public void setFocusFilter(FocusFilter focusFilter) {
+        this.focusFilter = focusFilter;
+    }
+
+    public FocusFilter getFocusFilter() {
+        return focusFilter;
+    }
+
+    /**
+     * @param torchController controller fed with the luma statistics of every analysed crop, or null
+     */
+    public void setTorchController(TorchController torchController) {
+        this.torchController = torchController;
+    }
+
+    public TorchController getTorchController() {
+        return torchController;
+    }
+
+    public BarcodeDecoder getDecoder() {
+        synchronized (decoderLock) {
+            return decoder;
+        }
+    }
+
+    public ScanRegion getRegion() {
+        return region;
+    }
+
+    public FrameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public LumaFramePool getFramePool() {
+        return framePool;
+    }
+
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return how many decoded values were dropped for failing the GTIN check digit
+     */
+    public long getRejectedReads() {
+        return rejectedReads.get();
+    }
+}
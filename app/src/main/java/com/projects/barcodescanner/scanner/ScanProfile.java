@@ -0,0 +1,87 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Named sets of symbologies the scanner searches for. Restricting the formats lets the decoder
+ * skip detectors that can never match in a given environment, which shortens every decode.
+ */
+public enum ScanProfile {
+    RETAIL_1D("Retail 1D",
+            Barcode.FORMAT_EAN_13, Barcode.FORMAT_UPC_A, Barcode.FORMAT_EAN_8, Barcode.FORMAT_UPC_E),
+    RETAIL_QR("Retail + QR",
+            Barcode.FORMAT_EAN_13, Barcode.FORMAT_UPC_A, Barcode.FORMAT_EAN_8, Barcode.FORMAT_UPC_E,
+            Barcode.FORMAT_QR_CODE),
+    LOGISTICS("Logistics",
+            Barcode.FORMAT_CODE_128, Barcode.FORMAT_ITF, Barcode.FORMAT_DATA_MATRIX),
+    ALL_FORMATS("All formats",
+            Barcode.FORMAT_ALL_FORMATS);
+
+    public static final ScanProfile DEFAULT = RETAIL_QR;
+
+    private final String displayName;
+    private final int[] formats;
+
+    ScanProfile(String displayName, int... formats) {
+        this.displayName = displayName;
+        this.formats = formats;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return the ML Kit {@code Barcode.FORMAT_*} constants covered by this profile.
+     */
+    public int[] getFormats() {
+        return formats.clone();
+    }
+
+    /**
+     * @return the same formats as ZXing {@link com.google.zxing.BarcodeFormat}s, or null for
+     *         "all formats".
+     */
+    public Set<com.google.zxing.BarcodeFormat> getZxingFormats() {
+        Set<com.google.zxing.BarcodeFormat> result = EnumSet.noneOf(com.google.zxing.BarcodeFormat.class);
+        for (int format : formats) {
+            if (format == Barcode.FORMAT_ALL_FORMATS) {
+                return null;
+            }
+            com.google.zxing.BarcodeFormat zxingFormat = toZxingFormat(format);
+            if (zxingFormat != null) {
+                result.add(zxingFormat);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the ZXing format for an ML Kit {@code Barcode.FORMAT_*} constant, or null if the
+     *         profiles never use it.
+     */
+    public static com.google.zxing.BarcodeFormat toZxingFormat(int format) {
+        switch (format) {
+            case Barcode.FORMAT_EAN_13: return com.google.zxing.BarcodeFormat.EAN_13;
+            case Barcode.FORMAT_EAN_8: return com.google.zxing.BarcodeFormat.EAN_8;
+            case Barcode.FORMAT_UPC_A: return com.google.zxing.BarcodeFormat.UPC_A;
+            case Barcode.FORMAT_UPC_E: return com.google.zxing.BarcodeFormat.UPC_E;
+            case Barcode.FORMAT_QR_CODE: return com.google.zxing.BarcodeFormat.QR_CODE;
+            case Barcode.FORMAT_CODE_128: return com.google.zxing.BarcodeFormat.CODE_128;
+            case Barcode.FORMAT_ITF: return com.google.zxing.BarcodeFormat.ITF;
+            case Barcode.FORMAT_DATA_MATRIX: return com.google.zxing.BarcodeFormat.DATA_MATRIX;
+            default: return null;
+        }
+    }
+
+    public BarcodeScannerOptions toScannerOptions() {
+        return new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(formats[0], Arrays.copyOfRange(formats, 1, formats.length))
+                .build();
+    }
+}
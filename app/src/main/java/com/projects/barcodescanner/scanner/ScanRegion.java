@@ -0,0 +1,137 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Maps the viewfinder box drawn by {@link com.projects.barcodescanner.ScannerOverlayView}
+ * into the coordinate space of the analysis image, so only that part of each frame is decoded.
+ *
+ * The preview and the analysis stream are assumed to show the same field of view. The mapped
+ * rectangle is cached and only recomputed when the view or the image geometry changes, so calling
+ * {@link #mapToImage(int, int, int)} once per frame does not allocate.
+ */
+public class ScanRegion {
+
+    // Viewfinder box in view pixels, as laid out by the overlay
+    private int viewWidth, viewHeight;
+    private float boxLeft, boxTop, boxRight, boxBottom;
+    private boolean fillCenter = true;
+    private boolean hasViewport = false;
+
+    // Cached mapping result in (unrotated) analysis-image pixels
+    private int cachedImageWidth = -1, cachedImageHeight = -1, cachedRotation = -1;
+    private int left, top, width, height;
+
+    /**
+     * Updates the viewfinder geometry. Call this whenever the overlay is laid out.
+     * @param fillCenter true if the PreviewView scales the stream with a FILL_* scale type,
+     *                   false for FIT_* scale types.
+     */
+    public synchronized void setViewport(int viewWidth, int viewHeight,
+                                         float boxLeft, float boxTop, float boxRight, float boxBottom,
+                                         boolean fillCenter) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.boxLeft = boxLeft;
+        this.boxTop = boxTop;
+        this.boxRight = boxRight;
+        this.boxBottom = boxBottom;
+        this.fillCenter = fillCenter;
+        this.hasViewport = viewWidth > 0 && viewHeight > 0 && boxRight > boxLeft && boxBottom > boxTop;
+        this.cachedImageWidth = -1; // Force a remap on the next frame
+    }
+
+    /**
+     * Maps the viewfinder box onto an analysis image of the given size and rotation.
+     * Falls back to the full frame if the overlay has not been laid out yet.
+     * The result is read through {@link #getLeft()}, {@link #getTop()}, {@link #getWidth()}
+     * and {@link #getHeight()}; all four are even so the crop can be fed to NV21 consumers.
+     */
+    public synchronized void mapToImage(int imageWidth, int imageHeight, int rotationDegrees) {
+        if (imageWidth == cachedImageWidth && imageHeight == cachedImageHeight && rotationDegrees == cachedRotation) {
+            return;
+        }
+        cachedImageWidth = imageWidth;
+        cachedImageHeight = imageHeight;
+        cachedRotation = rotationDegrees;
+
+        if (!hasViewport) {
+            setResult(0, 0, imageWidth, imageHeight, imageWidth, imageHeight);
+            return;
+        }
+
+        // Size of the image once it is rotated upright, which is how the preview displays it
+        boolean swapped = rotationDegrees == 90 || rotationDegrees == 270;
+        float uprightWidth = swapped ? imageHeight : imageWidth;
+        float uprightHeight = swapped ? imageWidth : imageHeight;
+
+        float scaleX = viewWidth / uprightWidth;
+        float scaleY = viewHeight / uprightHeight;
+        float scale = fillCenter ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        float offsetX = (viewWidth - uprightWidth * scale) / 2f;
+        float offsetY = (viewHeight - uprightHeight * scale) / 2f;
+
+        // Box corners in upright-image pixels
+        float uLeft = (boxLeft - offsetX) / scale;
+        float uTop = (boxTop - offsetY) / scale;
+        float uRight = (boxRight - offsetX) / scale;
+        float uBottom = (boxBottom - offsetY) / scale;
+
+        // Rotate back into sensor orientation
+        float l, t, r, b;
+        switch (rotationDegrees) {
+            case 90:
+                l = uTop;
+                r = uBottom;
+                t = imageHeight - uRight;
+                b = imageHeight - uLeft;
+                break;
+            case 180:
+                l = imageWidth - uRight;
+                r = imageWidth - uLeft;
+                t = imageHeight - uBottom;
+                b = imageHeight - uTop;
+                break;
+            case 270:
+                l = imageWidth - uBottom;
+                r = imageWidth - uTop;
+                t = uLeft;
+                b = uRight;
+                break;
+            default:
+                l = uLeft;
+                r = uRight;
+                t = uTop;
+                b = uBottom;
+                break;
+        }
+        setResult((int) l, (int) t, (int) Math.ceil(r), (int) Math.ceil(b), imageWidth, imageHeight);
+    }
+
+    private void setResult(int l, int t, int r, int b, int imageWidth, int imageHeight) {
+        l = clamp(l, 0, imageWidth) & ~1;
+        t = clamp(t, 0, imageHeight) & ~1;
+        r = clamp(r, l, imageWidth);
+        b = clamp(b, t, imageHeight);
+        int w = (r - l) & ~1;
+        int h = (b - t) & ~1;
+        if (w < 2 || h < 2) {
+            // Degenerate mapping, decode the whole frame rather than nothing
+            l = 0;
+            t = 0;
+            w = imageWidth & ~1;
+            h = imageHeight & ~1;
+        }
+        left = l;
+        top = t;
+        width = w;
+        height = h;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public synchronized int getLeft() { return left; }
+    public synchronized int getTop() { return top; }
+    public synchronized int getWidth() { return width; }
+    public synchronized int getHeight() { return height; }
+}
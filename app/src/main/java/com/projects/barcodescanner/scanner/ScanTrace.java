@@ -0,0 +1,34 @@
+package com.projects.barcodescanner.scanner;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * {@link Trace} sections for the scan pipeline, visible in Perfetto / systrace.
+ * Async sections (for stages that start and end on different threads) need API 29.
+ */
+public final class ScanTrace {
+
+    private ScanTrace() {
+    }
+
+    public static void begin(String section) {
+        Trace.beginSection(section);
+    }
+
+    public static void end() {
+        Trace.endSection();
+    }
+
+    public static void beginAsync(String section, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(section, cookie);
+        }
+    }
+
+    public static void endAsync(String section, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(section, cookie);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.projects.barcodescanner.scanner;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Size;
+
+/**
+ * Persisted scanner configuration. Kept in its own preferences file so that logging out,
+ * which clears "AppPrefs", does not reset how the scanner is set up on a device.
+ */
+public class ScannerSettings {
+
+    private static final String PREFS_NAME = "ScannerPrefs";
+    private static final String KEY_SCAN_PROFILE = "scan_profile";
+    private static final String KEY_DECODER_ENGINE = "decoder_engine";
+    private static final String KEY_ANALYSIS_RESOLUTION = "analysis_resolution";
+    private static final String KEY_CONSENSUS_WINDOW = "consensus_window";
+    private static final String KEY_CONSENSUS_VOTES = "consensus_votes";
+    private static final String KEY_TRUST_CHECK_DIGIT = "trust_check_digit";
+
+    // Two matching reads out of the last five frames: one extra frame (~33ms) for a clean label.
+    private static final int DEFAULT_CONSENSUS_WINDOW = 5;
+    private static final int DEFAULT_CONSENSUS_VOTES = 2;
+
+    private final SharedPreferences prefs;
+
+    public ScannerSettings(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public ScanProfile getScanProfile() {
+        String name = prefs.getString(KEY_SCAN_PROFILE, ScanProfile.DEFAULT.name());
+        try {
+            return ScanProfile.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return ScanProfile.DEFAULT;
+        }
+    }
+
+    public void setScanProfile(ScanProfile profile) {
+        prefs.edit().putString(KEY_SCAN_PROFILE, profile.name()).apply();
+    }
+
+    public DecoderEngine getDecoderEngine() {
+        String name = prefs.getString(KEY_DECODER_ENGINE, DecoderEngine.DEFAULT.name());
+        try {
+            return DecoderEngine.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return DecoderEngine.DEFAULT;
+        }
+    }
+
+    public void setDecoderEngine(DecoderEngine engine) {
+        prefs.edit().putString(KEY_DECODER_ENGINE, engine.name()).apply();
+    }
+
+    /**
+     * @return a fixed analysis size stored as "WIDTHxHEIGHT" (e.g. "1280x720"), or null to let
+     *         {@link AnalysisResolutionPolicy} pick one.
+     */
+    public Size getAnalysisResolutionOverride() {
+        String value = prefs.getString(KEY_ANALYSIS_RESOLUTION, null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Size.parseSize(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void setAnalysisResolutionOverride(Size size) {
+        if (size == null) {
+            prefs.edit().remove(KEY_ANALYSIS_RESOLUTION).apply();
+        } else {
+            prefs.edit().putString(KEY_ANALYSIS_RESOLUTION, size.getWidth() + "x" + size.getHeight()).apply();
+        }
+    }
+
+    public int getConsensusWindow() {
+        return prefs.getInt(KEY_CONSENSUS_WINDOW, DEFAULT_CONSENSUS_WINDOW);
+    }
+
+    public int getConsensusVotes() {
+        return prefs.getInt(KEY_CONSENSUS_VOTES, DEFAULT_CONSENSUS_VOTES);
+    }
+
+    public boolean isTrustCheckDigit() {
+        return prefs.getBoolean(KEY_TRUST_CHECK_DIGIT, false);
+    }
+
+    public void setConsensus(int window, int votes, boolean trustCheckDigit) {
+        prefs.edit()
+                .putInt(KEY_CONSENSUS_WINDOW, window)
+                .putInt(KEY_CONSENSUS_VOTES, votes)
+                .putBoolean(KEY_TRUST_CHECK_DIGIT, trustCheckDigit)
+                .apply();
+    }
+
+    /**
+     * Builds a vote window from the stored settings, falling back to the defaults if they are
+     * inconsistent.
+     */
+    public ScanConsensus createConsensus() {
+        int window = getConsensusWindow();
+        int votes = getConsensusVotes();
+        if (window < 1 || votes < 1 || votes > window) {
+            window = DEFAULT_CONSENSUS_WINDOW;
+            votes = DEFAULT_CONSENSUS_VOTES;
+        }
+        return new ScanConsensus(window, votes, isTrustCheckDigit());
+    }
+}
@@ -0,0 +1,135 @@
+package com.projects.barcodescanner.scanner;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.camera.lifecycle.ProcessCameraProvider;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gets the expensive parts of opening the scanner out of the way while the user is still on the
+ * home screen: CameraX provider initialisation, building the decoder and one decode of a synthetic
+ * frame, which is what loads the ML Kit model.
+ *
+ * Started from {@code MainActivity}; {@code CameraScannerActivity} then picks up the camera provider
+ * with {@link #getCameraProvider(Context)} and the decoder with {@link #takeDecoder}. Nothing here
+ * needs the camera permission.
+ */
+public final class ScannerWarmup {
+
+    private static final String TAG = "ScannerWarmup";
+
+    // Roughly the viewfinder crop of the default analysis resolution
+    private static final int WARMUP_FRAME_WIDTH = 604;
+    private static final int WARMUP_FRAME_HEIGHT = 302;
+
+    private static ListenableFuture<ProcessCameraProvider> cameraProvider;
+    private static ExecutorService executor;
+
+    // The warmed decoder and what it was built for; handed over at most once
+    private static BarcodeDecoder decoder;
+    private static ScanProfile decoderProfile;
+    private static DecoderEngine decoderEngine;
+    private static boolean decoderReady = false;
+    // Bumped whenever a warm-up is started or abandoned, so a stale one cannot hand over its decoder
+    private static int generation = 0;
+
+    private ScannerWarmup() {
+    }
+
+    /**
+     * Starts warming up in the background for the profile and engine currently in the settings.
+     * Does nothing if a warm-up is already running or its decoder has not been taken yet.
+     */
+    public static synchronized void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (cameraProvider == null) {
+            cameraProvider = ProcessCameraProvider.getInstance(appContext);
+        }
+        if (decoderProfile != null) {
+            return;
+        }
+        ScannerSettings settings = new ScannerSettings(appContext);
+        ScanProfile profile = settings.getScanProfile();
+        DecoderEngine engine = settings.getDecoderEngine();
+        decoderProfile = profile;
+        decoderEngine = engine;
+        decoderReady = false;
+        int warmupGeneration = ++generation;
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor();
+        }
+        executor.execute(() -> warmUp(profile, engine, warmupGeneration));
+    }
+
+    private static void warmUp(ScanProfile profile, DecoderEngine engine, int warmupGeneration) {
+        long start = SystemClock.elapsedRealtime();
+        BarcodeDecoder warmed = engine.createDecoder(profile);
+        try {
+            warmed.decode(createWarmupFrame());
+        } catch (Exception e) {
+            // Still worth handing over; the decoder falls back on its own if ML Kit is unavailable
+            Log.w(TAG, "Warm-up decode failed", e);
+        }
+        synchronized (ScannerWarmup.class) {
+            if (generation == warmupGeneration) {
+                decoder = warmed;
+                decoderReady = true;
+                warmed = null;
+            }
+        }
+        if (warmed != null) {
+            // The scanner opened first and built its own
+            warmed.close();
+        }
+        Log.d(TAG, "Warm-up took " + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    /**
+     * A frame with a few bars on it, so the decoder runs its detector rather than bailing out early.
+     */
+    private static LumaFrame createWarmupFrame() {
+        LumaFrame frame = new LumaFrame(WARMUP_FRAME_WIDTH, WARMUP_FRAME_HEIGHT, 0, 0);
+        byte[] data = frame.getData();
+        for (int y = 0; y < WARMUP_FRAME_HEIGHT; y++) {
+            for (int x = 0; x < WARMUP_FRAME_WIDTH; x++) {
+                data[y * WARMUP_FRAME_WIDTH + x] = (byte) ((x / 6) % 3 == 0 ? 30 : 230);
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * @return the camera provider future, started during warm-up if there was one
+     */
+    public static synchronized ListenableFuture<ProcessCameraProvider> getCameraProvider(Context context) {
+        if (cameraProvider == null) {
+            cameraProvider = ProcessCameraProvider.getInstance(context.getApplicationContext());
+        }
+        return cameraProvider;
+    }
+
+    /**
+     * Hands over the warmed-up decoder if it was built for this profile and engine and has finished
+     * warming up. The caller owns it from then on. A warm-up still in progress is abandoned, and a
+     * mismatching decoder is closed.
+     * @return the decoder, or null if the caller should build its own
+     */
+    public static synchronized BarcodeDecoder takeDecoder(ScanProfile profile, DecoderEngine engine) {
+        BarcodeDecoder taken = decoderReady && decoderProfile == profile && decoderEngine == engine ? decoder : null;
+        if (decoderReady && taken == null && decoder != null) {
+            decoder.close();
+        }
+        decoder = null;
+        decoderProfile = null;
+        decoderEngine = null;
+        decoderReady = false;
+        generation++;
+        return taken;
+    }
+}
@@ -0,0 +1,118 @@
+package com.projects.barcodescanner.scanner;
+
+/**
+ * Switches the torch from what the camera actually sees in the viewfinder crop: its mean luma and
+ * how much of it is blown out. The ambient light sensor faces the user, not the shelf, so its
+ * reading only shifts the thresholds a little.
+ *
+ * The on and off thresholds are far apart and a condition has to hold for a while before the torch
+ * changes, so it does not flicker on frames that hover around a threshold. While the torch is on it
+ * brightens the scene itself, so it is turned off only for a clearly bright crop or glare.
+ */
+public class TorchController {
+
+    public interface Torch {
+        /** Called on the thread that reported the frame; only called when the state changes. */
+        void setTorchEnabled(boolean enabled);
+    }
+
+    // Mean ROI luma below which the scene is too dark to decode reliably
+    private static final double ON_LUMA = 55;
+    // With the torch on, mean ROI luma above which it is no longer needed
+    private static final double OFF_LUMA = 170;
+    // Level counted as blown out, and the share of the crop that makes it glare
+    private static final int GLARE_LUMA = 248;
+    private static final double GLARE_FRACTION = 0.25;
+    // How long a condition has to hold before the torch changes
+    private static final long ON_DELAY_NANOS = 500_000_000L;
+    private static final long OFF_DELAY_NANOS = 1_000_000_000L;
+
+    // Light sensor readings, in lux, treated as a dark room or a bright one
+    private static final float DARK_ROOM_LUX = 10;
+    private static final float BRIGHT_ROOM_LUX = 500;
+    private static final double HINT_FACTOR = 1.25;
+
+    private final Torch torch;
+
+    private boolean enabled = false;
+    private float ambientLux = Float.NaN;
+    private long conditionSinceNanos = -1;
+    private long switches = 0;
+
+    public TorchController(Torch torch) {
+        this.torch = torch;
+    }
+
+    /**
+     * Feeds the statistics of one analysed crop.
+     */
+    public void onFrameStats(LumaStats stats, long nowNanos) {
+        onFrame(stats.getMeanLuma(), stats.fractionAtOrAbove(GLARE_LUMA), nowNanos);
+    }
+
+    void onFrame(double meanLuma, double glareFraction, long nowNanos) {
+        boolean change;
+        boolean newState;
+        synchronized (this) {
+            boolean wantsChange = enabled
+                    ? meanLuma > offLuma() || glareFraction > GLARE_FRACTION
+                    : meanLuma < onLuma();
+            if (!wantsChange) {
+                conditionSinceNanos = -1;
+                return;
+            }
+            if (conditionSinceNanos < 0) {
+                conditionSinceNanos = nowNanos;
+            }
+            change = nowNanos - conditionSinceNanos >= (enabled ? OFF_DELAY_NANOS : ON_DELAY_NANOS);
+            if (change) {
+                enabled = !enabled;
+                conditionSinceNanos = -1;
+                switches++;
+            }
+            // Read under the lock; another frame or reset() may change it before the call below
+            newState = enabled;
+        }
+        if (change) {
+            torch.setTorchEnabled(newState);
+        }
+    }
+
+    /**
+     * Ambient light sensor reading, in lux. Only used as a hint: a dark room makes the torch come on
+     * a little sooner, a bright one a little later.
+     */
+    public synchronized void onAmbientLight(float lux) {
+        ambientLux = lux;
+    }
+
+    /**
+     * Forgets the current state, e.g. after the torch was turned off because the screen paused.
+     */
+    public synchronized void reset() {
+        enabled = false;
+        conditionSinceNanos = -1;
+    }
+
+    private double onLuma() {
+        if (ambientLux < DARK_ROOM_LUX) {
+            return ON_LUMA * HINT_FACTOR;
+        }
+        if (ambientLux > BRIGHT_ROOM_LUX) {
+            return ON_LUMA / HINT_FACTOR;
+        }
+        return ON_LUMA;
+    }
+
+    private double offLuma() {
+        return ambientLux > BRIGHT_ROOM_LUX ? OFF_LUMA / HINT_FACTOR : OFF_LUMA;
+    }
+
+    public synchronized boolean isEnabled() { return enabled; }
+    public synchronized long getSwitches() { return switches; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(java.util.Locale.US, "torch on=%b switches=%d lux=%.1f", enabled, switches, ambientLux);
+    }
+}
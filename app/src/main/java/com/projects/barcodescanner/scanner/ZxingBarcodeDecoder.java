@@ -0,0 +1,138 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes frames with ZXing's {@link MultiFormatReader}. Pure Java, so it runs on devices without
+ * the ML Kit model and on a plain JVM in unit tests and benchmarks.
+ *
+ * Readers are not thread-safe, so each decode thread gets its own reader and rotation buffer.
+ * In multiple-results mode the frame is searched again around every code found, which costs
+ * extra decodes on frames that contain a code; frames without one cost the same.
+ */
+public class ZxingBarcodeDecoder implements BarcodeDecoder {
+
+    private final Map<DecodeHintType, Object> hints;
+    private final boolean multiple;
+    private final ThreadLocal<MultiFormatReader> readers = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> rotationBuffers = new ThreadLocal<>();
+
+    /**
+     * @param formats the symbologies to look for, or null for every format ZXing supports
+     * @param tryHarder spend more time per frame looking for a barcode
+     */
+    public ZxingBarcodeDecoder(Collection<BarcodeFormat> formats, boolean tryHarder) {
+        this(formats, tryHarder, false);
+    }
+
+    /**
+     * @param multiple return every distinct code in the frame rather than the first one found
+     */
+    public ZxingBarcodeDecoder(Collection<BarcodeFormat> formats, boolean tryHarder, boolean multiple) {
+        this.multiple = multiple;
+        hints = new EnumMap<>(DecodeHintType.class);
+        if (formats != null && !formats.isEmpty()) {
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        }
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public List<DecodedBarcode> decode(LumaFrame frame) {
+        MultiFormatReader reader = readers.get();
+        if (reader == null) {
+            reader = new MultiFormatReader();
+            reader.setHints(hints);
+            readers.set(reader);
+        }
+
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(toUprightSource(frame)));
+        try {
+            if (multiple) {
+                return decodeAll(reader, bitmap);
+            }
+            Result result = reader.decodeWithState(bitmap);
+            return Collections.singletonList(new DecodedBarcode(result.getText(), result.getBarcodeFormat()));
+        } catch (NotFoundException e) {
+            return Collections.emptyList();
+        } catch (Exception e) {
+            // Checksum and format errors just mean nothing readable was in this frame
+            return Collections.emptyList();
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private List<DecodedBarcode> decodeAll(MultiFormatReader reader, BinaryBitmap bitmap) throws NotFoundException {
+        Result[] results = new GenericMultipleBarcodeReader(reader).decodeMultiple(bitmap, hints);
+        // The sub-region searches can find the same code more than once
+        Map<String, DecodedBarcode> values = new LinkedHashMap<>();
+        for (Result result : results) {
+            if (!values.containsKey(result.getText())) {
+                values.put(result.getText(), new DecodedBarcode(result.getText(), result.getBarcodeFormat()));
+            }
+        }
+        return new ArrayList<>(values.values());
+    }
+
+    /**
+     * ZXing's 1D readers scan rows, so a frame that the camera delivers sideways has to be
+     * turned upright first. 180 degrees needs no work: every reader also tries the reversed row.
+     */
+    private PlanarYUVLuminanceSource toUprightSource(LumaFrame frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int rotation = frame.getRotationDegrees();
+        if (rotation != 90 && rotation != 270) {
+            return new PlanarYUVLuminanceSource(frame.getData(), width, height, 0, 0, width, height, false);
+        }
+
+        int size = width * height;
+        byte[] rotated = rotationBuffers.get();
+        if (rotated == null || rotated.length < size) {
+            rotated = new byte[size];
+            rotationBuffers.set(rotated);
+        }
+        byte[] src = frame.getData();
+        if (rotation == 90) {
+            for (int y = 0; y < height; y++) {
+                int row = y * width;
+                int dstColumn = height - 1 - y;
+                for (int x = 0; x < width; x++) {
+                    rotated[x * height + dstColumn] = src[row + x];
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    rotated[(width - 1 - x) * height + y] = src[row + x];
+                }
+            }
+        }
+        return new PlanarYUVLuminanceSource(rotated, height, width, 0, 0, height, width, false);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release; readers are garbage collected with their threads
+    }
+}
@@ -0,0 +1,107 @@
+package com.projects.barcodescanner.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class EditMergeTest {
+
+    /** One product of {@link LocalProductStore}, with its rows and edit times kept in memory. */
+    private static final class FakeStore {
+        JsonObject row;
+        long rowUpdatedAt;
+        final Map<String, JsonElement> edits = new LinkedHashMap<>();
+        final Map<String, Long> editedAt = new HashMap<>();
+
+        void putRemoteRow(String json) {
+            JsonObject incoming = JsonParser.parseString(json).getAsJsonObject();
+            long updatedAt = ProductJson.updatedAtMillis(incoming);
+            if (!EditMerge.replacesStoredRow(updatedAt, rowUpdatedAt)) {
+                return;
+            }
+            row = incoming;
+            rowUpdatedAt = updatedAt;
+            Iterator<Map.Entry<String, Long>> it = editedAt.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> edit = it.next();
+                if (!EditMerge.editSurvives(edit.getValue(), updatedAt)) {
+                    edits.remove(edit.getKey());
+                    it.remove();
+                }
+            }
+        }
+
+        void edit(String field, String value, long nowMillis) {
+            edits.put(field, new JsonPrimitive(value));
+            editedAt.put(field, nowMillis);
+        }
+
+        String read(String field) {
+            return EditMerge.overlay(row.deepCopy(), edits).get(field).getAsString();
+        }
+    }
+
+    // 2024-05-01T12:00:00Z and an hour later
+    private static final long NOON = 1714564800000L;
+    private static final long ONE_PM = NOON + 3_600_000L;
+
+    private static String row(String price, String updatedAt) {
+        return "{\"barcode\":\"5901234123457\",\"price\":\"" + price + "\",\"brand\":\"Acme\","
+                + "\"updated_at\":\"" + updatedAt + "\"}";
+    }
+
+    @Test
+    public void editNewerThanTheServerRowWins() {
+        FakeStore store = new FakeStore();
+        store.putRemoteRow(row("1.99", "2024-05-01T12:00:00+00:00"));
+        store.edit("price", "2.49", ONE_PM);
+
+        // A sync brings the same row again before the edit is pushed
+        store.putRemoteRow(row("1.99", "2024-05-01T12:00:00+00:00"));
+
+        assertEquals("2.49", store.read("price"));
+        assertEquals("Acme", store.read("brand"));
+    }
+
+    @Test
+    public void serverRowNewerThanTheEditWins() {
+        FakeStore store = new FakeStore();
+        store.putRemoteRow(row("1.99", "2024-05-01T12:00:00+00:00"));
+        store.edit("price", "2.49", NOON + 1000);
+
+        // Someone else changed the price after this device did
+        store.putRemoteRow(row("2.99", "2024-05-01T13:00:00.123456+00:00"));
+
+        assertEquals("2.99", store.read("price"));
+        assertTrue(store.edits.isEmpty());
+    }
+
+    @Test
+    public void lateOlderRowIsIgnored() {
+        FakeStore store = new FakeStore();
+        store.putRemoteRow(row("2.99", "2024-05-01T13:00:00+00:00"));
+        store.putRemoteRow(row("1.99", "2024-05-01T12:00:00+00:00"));
+
+        assertEquals("2.99", store.read("price"));
+        assertEquals(ONE_PM, store.rowUpdatedAt);
+    }
+
+    @Test
+    public void rowsWithoutTimestampAlwaysReplace() {
+        assertTrue(EditMerge.replacesStoredRow(0, ONE_PM));
+        assertTrue(EditMerge.editSurvives(NOON, 0));
+        assertFalse(EditMerge.editSurvives(NOON, NOON));
+    }
+}
@@ -0,0 +1,79 @@
+package com.projects.barcodescanner.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InFlightRequestsTest {
+
+    @Test
+    public void laterCallersJoinTheRunningRequest() {
+        InFlightRequests<String> inFlight = new InFlightRequests<>();
+
+        assertTrue(inFlight.join("5901234123457", "first"));
+        assertFalse(inFlight.join("5901234123457", "second"));
+        assertFalse(inFlight.join("5901234123457", "third"));
+
+        assertEquals(Arrays.asList("first", "second", "third"), inFlight.finish("5901234123457"));
+    }
+
+    @Test
+    public void keysAreIndependent() {
+        InFlightRequests<String> inFlight = new InFlightRequests<>();
+
+        assertTrue(inFlight.join("A", "a"));
+        assertTrue(inFlight.join("B", "b"));
+
+        assertEquals(Collections.singletonList("a"), inFlight.finish("A"));
+        assertFalse(inFlight.join("B", "b2"));
+    }
+
+    @Test
+    public void aFinishedRequestIsStartedAgain() {
+        InFlightRequests<String> inFlight = new InFlightRequests<>();
+        inFlight.join("A", "first");
+        inFlight.finish("A");
+
+        assertTrue(inFlight.join("A", "later"));
+        assertEquals(Collections.singletonList("later"), inFlight.finish("A"));
+        assertTrue(inFlight.finish("A").isEmpty());
+    }
+
+    @Test
+    public void concurrentCallersStartOneRequest() throws Exception {
+        InFlightRequests<Integer> inFlight = new InFlightRequests<>();
+        int callers = 16;
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(callers);
+        for (int i = 0; i < callers; i++) {
+            int caller = i;
+            threads.execute(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (inFlight.join("A", caller)) {
+                    started.incrementAndGet();
+                }
+            });
+        }
+        go.countDown();
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, started.get());
+        assertEquals(callers, inFlight.finish("A").size());
+    }
+}
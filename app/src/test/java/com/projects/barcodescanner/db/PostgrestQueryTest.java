@@ -0,0 +1,69 @@
+package com.projects.barcodescanner.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.projects.barcodescanner.db.PostgrestQuery.Filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+public class PostgrestQueryTest {
+
+    private static final String ENDPOINT = "https://example.supabase.co/rest/v1/products";
+
+    @Test
+    public void buildsProjectionFiltersOrderAndPaging() {
+        HttpUrl url = PostgrestQuery.from(ENDPOINT)
+                .select("product_name", "barcode")
+                .where(Filter.eq("location", "Trinidad & Tobago"))
+                .where(Filter.is("deleted", true).not())
+                .order("product_name", true)
+                .order("barcode", false)
+                .limit(50)
+                .offset(100)
+                .url();
+
+        assertEquals("eq.Trinidad & Tobago", url.queryParameter("location"));
+        assertEquals("not.is.true", url.queryParameter("deleted"));
+        assertEquals("product_name,barcode", url.queryParameter("select"));
+        assertEquals("product_name.asc,barcode.desc", url.queryParameter("order"));
+        assertEquals("50", url.queryParameter("limit"));
+        assertEquals("100", url.queryParameter("offset"));
+    }
+
+    @Test
+    public void omitsSelectWhenAllColumnsAreWanted() {
+        HttpUrl url = PostgrestQuery.from(ENDPOINT).select((String[]) null).url();
+
+        assertNull(url.queryParameter("select"));
+        assertEquals(ENDPOINT, url.toString());
+    }
+
+    @Test
+    public void quotesValuesInListsAndLogicTrees() {
+        HttpUrl url = PostgrestQuery.from(ENDPOINT)
+                .where(Filter.in("barcode", Arrays.asList("a,b", "c\"d")))
+                .where(Filter.or(
+                        Filter.gt("updated_at", "2024-01-01"),
+                        Filter.and(Filter.eq("updated_at", "2024-01-01"), Filter.gt("barcode", "(x)"))))
+                .url();
+
+        assertEquals("in.(\"a,b\",\"c\\\"d\")", url.queryParameter("barcode"));
+        assertEquals("(updated_at.gt.\"2024-01-01\",and(updated_at.eq.\"2024-01-01\",barcode.gt.\"(x)\"))",
+                url.queryParameter("or"));
+    }
+
+    @Test
+    public void sendsRangeAsHeaders() {
+        Request request = PostgrestQuery.from(ENDPOINT).range(20, 39).newRequest().build();
+
+        assertEquals("items", request.header("Range-Unit"));
+        assertEquals("20-39", request.header("Range"));
+        assertNull(request.url().queryParameter("limit"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.projects.barcodescanner.db;
+
+import com.projects.barcodescanner.model.Product;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ProductCacheTest {
+
+    private static final long FRESH = 1_000;
+    private static final long STALE = 10_000;
+    private static final long NEGATIVE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Product product(String barcode, String name) {
+        Product product = new Product();
+        product.setBarcode(barcode);
+        product.setProductName(name);
+        product.setIngredients(Arrays.asList("water", "salt"));
+        return product;
+    }
+
+    @Test
+    public void entryGoesFromFreshToStaleToGone() {
+        ProductCache cache = new ProductCache(null, 10, 0, FRESH, STALE, NEGATIVE);
+        cache.put("4006381333931", product("4006381333931", "Pen"), 0);
+
+        assertTrue(cache.getFromMemory("4006381333931", 500).isFresh(500));
+        ProductCache.Entry stale = cache.getFromMemory("4006381333931", 5_000);
+        assertNotNull(stale);
+        assertFalse(stale.isFresh(5_000));
+        assertNull(cache.getFromMemory("4006381333931", FRESH + STALE));
+        assertEquals(1, cache.getStaleHits());
+    }
+
+    @Test
+    public void notFoundExpiresQuickly() {
+        ProductCache cache = new ProductCache(null, 10, 0, FRESH, STALE, NEGATIVE);
+        cache.putNotFound("4006381333931", 0);
+
+        assertTrue(cache.getFromMemory("4006381333931", 50).isNotFound());
+        assertNull(cache.getFromMemory("4006381333931", NEGATIVE));
+        assertEquals(1, cache.getNotFoundHits());
+    }
+
+    @Test
+    public void memoryEvictsLeastRecentlyUsed() {
+        ProductCache cache = new ProductCache(null, 2, 0, FRESH, STALE, NEGATIVE);
+        cache.put("a", product("a", "A"), 0);
+        cache.put("b", product("b", "B"), 0);
+        cache.getFromMemory("a", 1);
+        cache.put("c", product("c", "C"), 2);
+
+        assertNotNull(cache.getFromMemory("a", 3));
+        assertNull(cache.getFromMemory("b", 3));
+        assertEquals(1, cache.getMemoryEvictions());
+    }
+
+    @Test
+    public void diskTierSurvivesANewInstance() throws Exception {
+        File dir = folder.newFolder("products");
+        ProductCache cache = new ProductCache(dir, 10, 1 << 20, FRESH, STALE, NEGATIVE);
+        cache.writeToDisk("4006381333931", cache.put("4006381333931", product("4006381333931", "Pen"), 0));
+
+        ProductCache reopened = new ProductCache(dir, 10, 1 << 20, FRESH, STALE, NEGATIVE);
+        assertNull(reopened.getFromMemory("4006381333931", 10));
+        ProductCache.Entry entry = reopened.getFromDisk("4006381333931", 10);
+        assertNotNull(entry);
+        assertEquals("Pen", entry.getProduct().getProductName());
+        assertEquals(Arrays.asList("water", "salt"), entry.getProduct().getIngredients());
+        assertEquals(0, entry.getFetchedAtMillis());
+        assertNotNull(reopened.getFromMemory("4006381333931", 20));
+        assertNull(reopened.getFromDisk("0000000000000", 20));
+        assertEquals(1, reopened.getMisses());
+    }
+
+    @Test
+    public void diskTierStaysUnderItsCap() throws Exception {
+        File dir = folder.newFolder("products");
+        long cap = 2_000;
+        ProductCache cache = new ProductCache(dir, 100, cap, FRESH, STALE, NEGATIVE);
+        for (int i = 0; i < 40; i++) {
+            String key = "item-" + i;
+            cache.writeToDisk(key, cache.put(key, product(key, "Item " + i), i));
+        }
+
+        long total = 0;
+        for (File file : dir.listFiles()) {
+            total += file.length();
+        }
+        assertTrue(total <= cap);
+        assertTrue(cache.getDiskEvictions() > 0);
+    }
+}
@@ -0,0 +1,146 @@
+package com.projects.barcodescanner.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.projects.barcodescanner.model.Product;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class ProductFeedTest {
+
+    /** Serves barcodes 0000 to total - 1, keyed by barcode, answering at once. */
+    private static final class FakeLoader implements ProductFeed.PageLoader {
+        final int total;
+        final List<String> requests = new ArrayList<>();
+        boolean failing = false;
+
+        FakeLoader(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public void load(String after, int limit, ProductFeed.PageCallback callback) {
+            requests.add(after);
+            if (failing) {
+                callback.onError(new IOException("offline"));
+                return;
+            }
+            int first = after == null ? 0 : Integer.parseInt(after) + 1;
+            List<Product> page = new ArrayList<>();
+            String next = null;
+            for (int i = first; i < Math.min(total, first + limit); i++) {
+                Product product = new Product();
+                next = String.format(Locale.US, "%04d", i);
+                product.setBarcode(next);
+                page.add(product);
+            }
+            callback.onPage(page, next);
+        }
+    }
+
+    private static final class RecordingListener implements ProductFeed.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onItemsInserted(int start, int count) {
+            events.add("inserted " + start + "+" + count);
+        }
+
+        @Override
+        public void onItemsChanged(int start, int count) {
+            events.add("changed " + start + "+" + count);
+        }
+
+        @Override
+        public void onError(IOException e, boolean empty) {
+            events.add("error empty=" + empty);
+        }
+    }
+
+    private static ProductFeed newFeed(FakeLoader loader, RecordingListener listener) {
+        return new ProductFeed(loader, Runnable::run, 10, 3, 1, listener);
+    }
+
+    @Test
+    public void firstPaintLoadsOnlyTheFirstPage() {
+        FakeLoader loader = new FakeLoader(1000);
+        RecordingListener listener = new RecordingListener();
+        ProductFeed feed = newFeed(loader, listener);
+
+        feed.start();
+
+        assertEquals(1, loader.requests.size());
+        assertEquals(10, feed.getCount());
+        assertEquals("0009", feed.get(9).getBarcode());
+        assertEquals("inserted 0+10", listener.events.get(0));
+    }
+
+    @Test
+    public void prefetchesTheNextPageByKeysetNearTheEnd() {
+        FakeLoader loader = new FakeLoader(1000);
+        ProductFeed feed = newFeed(loader, new RecordingListener());
+        feed.start();
+
+        feed.onPositionShown(5);
+        assertEquals(1, loader.requests.size());
+
+        feed.onPositionShown(7);
+        assertEquals(2, loader.requests.size());
+        assertEquals("0009", loader.requests.get(1));
+        assertEquals(20, feed.getCount());
+        assertEquals("0010", feed.get(10).getBarcode());
+    }
+
+    @Test
+    public void dropsFarPagesAndFetchesThemAgainOnTheWayBack() {
+        FakeLoader loader = new FakeLoader(1000);
+        RecordingListener listener = new RecordingListener();
+        ProductFeed feed = newFeed(loader, listener);
+        feed.start();
+        for (int position = 0; position < 100; position++) {
+            feed.onPositionShown(position);
+        }
+
+        assertTrue(feed.getPagesInMemory() <= 3);
+        assertNull(feed.get(0));
+
+        int requests = loader.requests.size();
+        feed.onPositionShown(0);
+        // The shown page and the one after it, each after its remembered cursor
+        assertEquals(requests + 2, loader.requests.size());
+        assertNull(loader.requests.get(requests));
+        assertEquals("0009", loader.requests.get(requests + 1));
+        assertEquals("0000", feed.get(0).getBarcode());
+        assertTrue(listener.events.contains("changed 0+10"));
+    }
+
+    @Test
+    public void completesOnAShortPageAndReportsErrors() {
+        FakeLoader loader = new FakeLoader(15);
+        RecordingListener listener = new RecordingListener();
+        ProductFeed feed = newFeed(loader, listener);
+        feed.start();
+        feed.onPositionShown(8);
+
+        assertTrue(feed.isComplete());
+        assertEquals(15, feed.getCount());
+        feed.onPositionShown(14);
+        assertEquals(2, loader.requests.size());
+
+        FakeLoader offline = new FakeLoader(15);
+        offline.failing = true;
+        RecordingListener failed = new RecordingListener();
+        ProductFeed empty = newFeed(offline, failed);
+        empty.start();
+        assertFalse(empty.isComplete());
+        assertEquals("error empty=true", failed.events.get(0));
+    }
+}
@@ -0,0 +1,41 @@
+package com.projects.barcodescanner.db;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.projects.barcodescanner.model.Product;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ProductJsonTest {
+
+    @Test
+    public void parsesPostgrestTimestamps() {
+        long expected = 1714566896789L; // 2024-05-01T12:34:56.789Z
+        assertEquals(expected, ProductJson.parseTimestamp("2024-05-01T12:34:56.789012+00:00"));
+        assertEquals(expected, ProductJson.parseTimestamp("2024-05-01T12:34:56.789Z"));
+        assertEquals(expected, ProductJson.parseTimestamp("2024-05-01T14:34:56.789+02:00"));
+        assertEquals(expected - 789, ProductJson.parseTimestamp("2024-05-01 12:34:56"));
+        assertEquals(expected - 89, ProductJson.parseTimestamp("2024-05-01T12:34:56.7+00"));
+        assertEquals(-1, ProductJson.parseTimestamp("yesterday"));
+    }
+
+    @Test
+    public void rowWithoutTimestampCountsAsOldest() {
+        assertEquals(0, ProductJson.updatedAtMillis(new JsonObject()));
+    }
+
+    @Test
+    public void listsStoredAsStringsAreParsed() {
+        JsonObject row = JsonParser.parseString("{\"barcode\":\"4006381333931\",\"price\":2.5,"
+                + "\"ingredients\":\"[\\\"water\\\",\\\"salt\\\"]\",\"is_edible\":true}").getAsJsonObject();
+        Product product = ProductJson.fromJson(row);
+        assertEquals(Arrays.asList("water", "salt"), product.getIngredients());
+        assertEquals("2.5", product.getPrice());
+        assertTrue(product.isEdible());
+        assertEquals(product.getIngredients(), ProductJson.fromJson(ProductJson.toJson(product)).getIngredients());
+    }
+}
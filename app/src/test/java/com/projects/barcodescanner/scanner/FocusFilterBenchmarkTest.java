@@ -0,0 +1,132 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the focus pre-filter separates sharp from blurred crops, and that measuring a frame
+ * costs far less than the decode it saves.
+ */
+public class FocusFilterBenchmarkTest {
+
+    // Roughly the viewfinder crop of a 754x565 analysis frame
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 300;
+
+    private final byte[] sharp;
+    private final byte[] blurred;
+
+    public FocusFilterBenchmarkTest() throws Exception {
+        sharp = TestFrames.renderUpright("5901234123457", BarcodeFormat.EAN_13, WIDTH, HEIGHT);
+        blurred = TestFrames.blur(sharp, WIDTH, HEIGHT, 5);
+    }
+
+    @Test
+    public void blurredFrameScoresFarBelowSharpFrame() {
+        LumaStats stats = new LumaStats(4);
+        stats.compute(sharp, WIDTH, HEIGHT);
+        double sharpScore = stats.getSharpness();
+        stats.compute(blurred, WIDTH, HEIGHT);
+        double blurredScore = stats.getSharpness();
+        assertTrue(blurredScore + " vs " + sharpScore, blurredScore < sharpScore * 0.4);
+    }
+
+    @Test
+    public void calibratedFilterRejectsBlurAndFlatFrames() {
+        FocusFilter filter = new FocusFilter();
+        LumaStats stats = new LumaStats(4);
+        stats.compute(blurred, WIDTH, HEIGHT);
+        assertTrue("Nothing is rejected for blur before calibration", filter.accept(stats));
+
+        stats.compute(sharp, WIDTH, HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(filter.accept(stats));
+            filter.onDecodeResult(stats.getSharpness(), true);
+        }
+        assertTrue(filter.accept(stats));
+
+        stats.compute(blurred, WIDTH, HEIGHT);
+        assertFalse(filter.accept(stats));
+
+        stats.compute(new byte[WIDTH * HEIGHT], WIDTH, HEIGHT);
+        assertFalse(filter.accept(stats));
+        assertEquals(1, filter.getFramesRejectedBlur());
+        assertEquals(1, filter.getFramesRejectedContrast());
+    }
+
+    @Test
+    public void washedOutFramesDoNotRelaxTheBlurThreshold() {
+        FocusFilter filter = new FocusFilter();
+        LumaStats stats = new LumaStats(4);
+        stats.compute(sharp, WIDTH, HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            filter.accept(stats);
+            filter.onDecodeResult(stats.getSharpness(), true);
+        }
+        double threshold = filter.getThreshold();
+
+        // Pointing at a blank wall for a while
+        stats.compute(new byte[WIDTH * HEIGHT], WIDTH, HEIGHT);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(filter.accept(stats));
+        }
+
+        assertEquals(threshold, filter.getThreshold(), 0);
+        stats.compute(blurred, WIDTH, HEIGHT);
+        assertFalse(filter.accept(stats));
+    }
+
+    @Test
+    public void longRunOfBlurRelaxesTheThreshold() {
+        FocusFilter filter = new FocusFilter();
+        LumaStats stats = new LumaStats(4);
+        stats.compute(sharp, WIDTH, HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            filter.accept(stats);
+            filter.onDecodeResult(stats.getSharpness(), true);
+        }
+        double threshold = filter.getThreshold();
+
+        stats.compute(blurred, WIDTH, HEIGHT);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(filter.accept(stats));
+        }
+        assertTrue(filter.accept(stats));
+        assertTrue(filter.getThreshold() < threshold);
+    }
+
+    @Test
+    public void measuringAFrameCostsFarLessThanDecodingIt() {
+        LumaStats stats = new LumaStats(4);
+        LumaFrame blurredFrame = TestFrames.toSensorFrame(blurred, WIDTH, HEIGHT, 0);
+        ZxingBarcodeDecoder decoder = new ZxingBarcodeDecoder(null, false);
+        for (int i = 0; i < 50; i++) {
+            stats.compute(blurredFrame);
+            decoder.decode(blurredFrame);
+        }
+
+        double statsMs = Double.MAX_VALUE;
+        double decodeMs = Double.MAX_VALUE;
+        int runs = 40;
+        // Fastest of several batches, to keep GC pauses and JIT noise out of the comparison
+        for (int batch = 0; batch < 5; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                stats.compute(blurredFrame);
+            }
+            statsMs = Math.min(statsMs, (System.nanoTime() - start) / 1e6 / runs);
+
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                decoder.decode(blurredFrame);
+            }
+            decodeMs = Math.min(decodeMs, (System.nanoTime() - start) / 1e6 / runs);
+        }
+
+        // Measured at well over 50x; a rejected frame has to save at least ten times its check
+        assertTrue(statsMs + " ms vs " + decodeMs + " ms", statsMs * 10 < decodeMs);
+    }
+}
@@ -0,0 +1,90 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+    // 30 fps camera, analysed at no more than 20 fps
+    private static final long FRAME = 33 * MS;
+    private static final long MIN_INTERVAL = 50 * MS;
+
+    /** Offers 30 fps frames for a second, each accepted one taking {@code decodeMs} to decode. */
+    private static int acceptedInOneSecond(FrameScheduler scheduler, long startNanos, long decodeMs) {
+        int accepted = 0;
+        for (long now = startNanos; now < startNanos + 1000 * MS; now += FRAME) {
+            if (scheduler.tryAcquire(now)) {
+                accepted++;
+                scheduler.onDecodeFinished(decodeMs * MS);
+            }
+        }
+        return accepted;
+    }
+
+    @Test
+    public void fastDecodesRunAtTheMinimumInterval() {
+        FrameScheduler scheduler = new FrameScheduler(MIN_INTERVAL, 2);
+        int accepted = acceptedInOneSecond(scheduler, 0, 5);
+
+        // Every other 33 ms frame clears the 50 ms floor
+        assertEquals(16, accepted);
+        assertEquals(1e9 / MIN_INTERVAL, scheduler.getTargetFps(), 0.01);
+    }
+
+    @Test
+    public void slowDecodesSpreadFramesToKeepHeadroom() {
+        FrameScheduler scheduler = new FrameScheduler(MIN_INTERVAL, 2);
+        // Far slower than the frame interval, so no overlap; 200 ms at 80% duty is one frame per 250 ms
+        acceptedInOneSecond(scheduler, 0, 200);
+
+        assertEquals(4.0, scheduler.getTargetFps(), 0.01);
+        assertEquals(200.0, scheduler.getAverageDecodeMillis(), 0.01);
+        int accepted = acceptedInOneSecond(scheduler, 2000 * MS, 200);
+        assertTrue("accepted " + accepted, accepted >= 3 && accepted <= 4);
+    }
+
+    @Test
+    public void overlapsDecodesOnlyWhenSlightlySlowerThanTheInterval() {
+        FrameScheduler pipelined = new FrameScheduler(MIN_INTERVAL, 2);
+        pipelined.tryAcquire(0);
+        pipelined.onDecodeFinished(80 * MS); // Between one and two intervals
+        assertTrue(pipelined.tryAcquire(1000 * MS));
+        assertTrue(pipelined.tryAcquire(1100 * MS));
+        assertFalse(pipelined.tryAcquire(1200 * MS)); // Both slots taken
+
+        FrameScheduler saturated = new FrameScheduler(MIN_INTERVAL, 2);
+        saturated.tryAcquire(0);
+        saturated.onDecodeFinished(300 * MS);
+        assertTrue(saturated.tryAcquire(1000 * MS));
+        assertFalse(saturated.tryAcquire(2000 * MS)); // Only one slot when far too slow
+        saturated.release();
+        assertTrue(saturated.tryAcquire(2000 * MS));
+    }
+
+    @Test
+    public void fastDevicesOverlapASlowDecodeWithTheNextFrame() {
+        FrameScheduler scheduler = new FrameScheduler(MIN_INTERVAL, 2);
+        assertTrue(scheduler.tryAcquire(0));
+        assertFalse("one at a time until a decode is timed", scheduler.tryAcquire(MIN_INTERVAL));
+        scheduler.onDecodeFinished(5 * MS);
+
+        // A decode that hangs on, e.g. behind a GC pause, does not hold up the next frame
+        assertTrue(scheduler.tryAcquire(1000 * MS));
+        assertTrue(scheduler.tryAcquire(1000 * MS + MIN_INTERVAL));
+        assertFalse(scheduler.tryAcquire(1000 * MS + 2 * MIN_INTERVAL));
+    }
+
+    @Test
+    public void countsSeenDroppedAndDecodedFrames() {
+        FrameScheduler scheduler = new FrameScheduler(MIN_INTERVAL, 1);
+        assertTrue(scheduler.tryAcquire(0));
+        assertFalse(scheduler.tryAcquire(10 * MS));
+        scheduler.onDecodeFinished(5 * MS);
+
+        assertEquals(2, scheduler.getFramesSeen());
+        assertEquals(1, scheduler.getFramesDropped());
+        assertEquals(1, scheduler.getFramesDecoded());
+    }
+}
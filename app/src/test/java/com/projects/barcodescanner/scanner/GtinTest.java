@@ -0,0 +1,89 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GtinTest {
+
+    @Test
+    public void everySpellingOfOneItemMapsToOneKey() {
+        String key = "0012345678905";
+        assertEquals(key, Gtin.canonicalKey("012345678905"));
+        assertEquals(key, Gtin.canonicalKey("0012345678905"));
+        assertEquals(key, Gtin.canonicalKey("00012345678905"));
+        assertEquals(key, Gtin.canonicalKey("0100012345678905"));
+        assertEquals(key, Gtin.canonicalKey("]C10100012345678905\u001D10ABC123"));
+        assertEquals(key, Gtin.canonicalKey("(01)00012345678905(17)251231"));
+        assertEquals(key, Gtin.canonicalKey("https://id.example.com/shop/01/00012345678905/10/ABC?17=251231"));
+    }
+
+    @Test
+    public void nonZeroIndicatorKeepsFourteenDigits() {
+        assertEquals("10012345678902", Gtin.canonicalKey("10012345678902"));
+    }
+
+    @Test
+    public void badCheckDigitIsRejected() {
+        assertNull(Gtin.canonicalKey("012345678904"));
+        assertNull(Gtin.canonicalKey("https://id.gs1.org/01/09506000134353"));
+    }
+
+    @Test
+    public void valuesWithoutGtinPassThrough() {
+        assertEquals("BOX-0042", Gtin.canonicalKey(" BOX-0042 "));
+        assertEquals("https://example.com/menu", Gtin.canonicalKey("https://example.com/menu"));
+        assertEquals("12345", Gtin.canonicalKey("12345"));
+    }
+
+    @Test
+    public void onlyEanAndUpcReadsAreCheckedAsGtins() {
+        assertNull(Gtin.canonicalKey("012345678904", BarcodeFormat.UPC_A));
+        assertNull(Gtin.canonicalKey("4006381333932", BarcodeFormat.EAN_13));
+        assertNull(Gtin.canonicalKey("4006381333932", null));
+        // Digit strings from other symbologies need not be GTINs
+        assertEquals("4006381333932", Gtin.canonicalKey(" 4006381333932 ", BarcodeFormat.CODE_128));
+        assertEquals("12345671", Gtin.canonicalKey("12345671", BarcodeFormat.ITF));
+        assertEquals("https://id.gs1.org/01/09506000134353",
+                Gtin.canonicalKey("https://id.gs1.org/01/09506000134353", BarcodeFormat.QR_CODE));
+        // A valid GTIN is still keyed as one, whatever carried it
+        assertEquals("9506000134352", Gtin.canonicalKey("]C1010950600013435210ABC", BarcodeFormat.CODE_128));
+        assertEquals("4006381333931", Gtin.canonicalKey("04006381333931", BarcodeFormat.ITF));
+    }
+
+    @Test
+    public void upcEIsExpandedToItsUpcA() {
+        // Each zero-suppression pattern, picked by the last of the six digits
+        assertEquals("012000003455", Gtin.expandUpcE("01234505"));
+        assertEquals("012300000451", Gtin.expandUpcE("01234531"));
+        assertEquals("012340000053", Gtin.expandUpcE("01234543"));
+        assertEquals("012345000065", Gtin.expandUpcE("01234565"));
+        assertNull(Gtin.expandUpcE("21234565")); // Only number systems 0 and 1 exist
+    }
+
+    @Test
+    public void upcEMapsToTheKeyOfItsUpcA() {
+        assertEquals("0012345000065", Gtin.canonicalKey("01234565", BarcodeFormat.UPC_E));
+        assertEquals(Gtin.canonicalKey("012345000065"), Gtin.canonicalKey("01234565", BarcodeFormat.UPC_E));
+        assertEquals("0042100005264", Gtin.canonicalKey("04252614", BarcodeFormat.UPC_E));
+        // Valid as a UPC-E, though not as an EAN-8
+        assertNull(Gtin.canonicalKey("04252614"));
+        assertNull(Gtin.canonicalKey("01234566", BarcodeFormat.UPC_E));
+        // Other formats are unaffected
+        assertEquals("0000096385074", Gtin.canonicalKey("96385074", BarcodeFormat.EAN_8));
+        assertEquals("0012345678905", Gtin.canonicalKey("012345678905", BarcodeFormat.UPC_A));
+    }
+
+    @Test
+    public void lookupVariantsCoverStoredSpellings() {
+        assertEquals(Arrays.asList("0012345678905", "00012345678905", "012345678905"),
+                Gtin.lookupVariants("0012345678905"));
+        assertEquals(Arrays.asList("96385074", "00000096385074", "0000096385074", "000096385074"),
+                Gtin.lookupVariants("96385074"));
+        assertEquals(Arrays.asList("BOX-0042"), Gtin.lookupVariants("BOX-0042"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InventorySessionTest {
+
+    private static final long REPEAT_GAP = 1500;
+
+    @Test
+    public void sameUnitStillInViewIsCountedOnce() {
+        InventorySession session = new InventorySession(REPEAT_GAP);
+        assertTrue(session.add("4006381333931", 0));
+        assertFalse(session.add("4006381333931", 1000));
+        // Still in view: every read pushes the gap further out
+        assertFalse(session.add("4006381333931", 2000));
+        assertTrue(session.add("4006381333931", 3500));
+
+        assertEquals(2, session.getTotalUnits());
+        assertEquals(1, session.snapshot().size());
+    }
+
+    @Test
+    public void eachBarcodeIsQueuedForLookupOnce() {
+        InventorySession session = new InventorySession(REPEAT_GAP);
+        session.add("A", 0);
+        session.add("B", 0);
+        session.add("A", 5000);
+
+        assertEquals(2, session.getPendingCount());
+        assertEquals(Arrays.asList("A"), session.drainBatch(1));
+        assertEquals(Arrays.asList("B"), session.drainBatch(10));
+        assertTrue(session.drainBatch(10).isEmpty());
+    }
+
+    @Test
+    public void failedLookupsAreRequeued() {
+        InventorySession session = new InventorySession(REPEAT_GAP);
+        session.add("A", 0);
+        session.add("B", 0);
+        List<String> batch = session.drainBatch(10);
+
+        session.requeue(batch);
+
+        assertEquals(2, session.getPendingCount());
+        assertEquals(Arrays.asList("A", "B"), session.drainBatch(10));
+    }
+
+    @Test
+    public void snapshotIsNewestFirstAndDetachedFromTheSession() {
+        InventorySession session = new InventorySession(REPEAT_GAP);
+        session.add("A", 0);
+        session.add("B", 0);
+        session.markFound("A", "Milk", null);
+        session.markNotFound("B");
+
+        List<InventorySession.Item> items = session.snapshot();
+        session.add("A", 5000);
+
+        assertEquals("B", items.get(0).getBarcode());
+        assertEquals(InventorySession.Status.NOT_FOUND, items.get(0).getStatus());
+        assertEquals("Milk", items.get(1).getProductName());
+        assertEquals(InventorySession.Status.FOUND, items.get(1).getStatus());
+        assertEquals(1, items.get(1).getCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    private static final long MS = 1_000_000L;
+    private static final float G = 9.81f;
+
+    /** A phone lying still for a second, sampled every 10 ms, so gravity and the baseline settle. */
+    private static MotionGate restingGate() {
+        MotionGate gate = new MotionGate();
+        for (long now = 0; now <= 1000 * MS; now += 10 * MS) {
+            gate.onAccelerometer(0, 0, G, now);
+            gate.onGyroscope(0, 0, 0, now);
+        }
+        return gate;
+    }
+
+    @Test
+    public void steadyPhoneLetsFramesThrough() {
+        MotionGate gate = restingGate();
+        assertTrue(gate.allowFrame(1005 * MS));
+        assertEquals(0, gate.getFramesSkipped());
+    }
+
+    @Test
+    public void sweepIsGatedUntilTheSettleTimeHasPassed() {
+        MotionGate gate = restingGate();
+        gate.onAccelerometer(3, 0, G, 1010 * MS);
+
+        assertFalse(gate.allowFrame(1020 * MS));
+        assertFalse(gate.allowFrame(1080 * MS));
+        // 80 ms after the spike
+        assertTrue(gate.allowFrame(1090 * MS));
+        assertEquals(2, gate.getFramesSkippedLinear());
+    }
+
+    @Test
+    public void rotationIsGatedOnItsOwn() {
+        MotionGate gate = restingGate();
+        gate.onGyroscope(0, 1f, 0, 1010 * MS);
+
+        assertFalse(gate.allowFrame(1020 * MS));
+        assertEquals(1, gate.getFramesSkippedAngular());
+        assertEquals(0, gate.getFramesSkippedLinear());
+    }
+
+    @Test
+    public void letsOneFrameThroughAfterTooManySkips() {
+        MotionGate gate = restingGate();
+        long now = 1010 * MS;
+        for (int i = 0; i < 15; i++, now += 33 * MS) {
+            gate.onGyroscope(0, 1f, 0, now);
+            assertFalse(gate.allowFrame(now));
+        }
+        gate.onGyroscope(0, 1f, 0, now);
+
+        assertTrue(gate.allowFrame(now));
+        assertEquals(1, gate.getFramesForced());
+        gate.onGyroscope(0, 1f, 0, now + 33 * MS);
+        assertFalse(gate.allowFrame(now + 33 * MS));
+    }
+
+    @Test
+    public void nothingIsGatedWithoutRecentSamples() {
+        MotionGate gate = restingGate();
+        gate.onGyroscope(0, 1f, 0, 1010 * MS);
+        assertFalse(gate.allowFrame(1020 * MS));
+
+        // The sensors stopped reporting; the last spike no longer counts
+        assertTrue(gate.allowFrame(1520 * MS));
+
+        gate.onGyroscope(0, 1f, 0, 2000 * MS);
+        gate.reset();
+        assertTrue(gate.allowFrame(2010 * MS));
+    }
+}
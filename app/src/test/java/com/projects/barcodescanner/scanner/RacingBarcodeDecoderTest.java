@@ -0,0 +1,92 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RacingBarcodeDecoderTest {
+
+    private static final DecodedBarcode HIT = new DecodedBarcode("5901234123457", null);
+
+    private static class FastDecoder implements BarcodeDecoder {
+        volatile boolean closed;
+
+        @Override
+        public List<DecodedBarcode> decode(LumaFrame frame) {
+            return Collections.singletonList(HIT);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /** Blocks until released, then records the first luma byte it sees. */
+    private static class SlowDecoder implements BarcodeDecoder {
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int seen = -1;
+        volatile boolean closed;
+
+        @Override
+        public List<DecodedBarcode> decode(LumaFrame frame) throws Exception {
+            go.await();
+            seen = frame.getData()[0];
+            assertFalse(closed);
+            done.countDown();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void losingEngineKeepsReadingItsOwnCopy() throws Exception {
+        SlowDecoder slow = new SlowDecoder();
+        RacingBarcodeDecoder racing = new RacingBarcodeDecoder(slow, new FastDecoder());
+        LumaFrame frame = new LumaFrame(8, 4, 0, 0);
+        frame.getData()[0] = 7;
+
+        assertEquals(Collections.singletonList(HIT), racing.decode(frame));
+        // The caller recycles the frame for the next camera image
+        frame.getData()[0] = 99;
+        slow.go.countDown();
+
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+        assertEquals(7, slow.seen);
+        racing.close();
+    }
+
+    @Test
+    public void busyEngineSitsOutAndIsClosedWhenItFinishes() throws Exception {
+        SlowDecoder slow = new SlowDecoder();
+        FastDecoder fast = new FastDecoder();
+        RacingBarcodeDecoder racing = new RacingBarcodeDecoder(slow, fast);
+        LumaFrame frame = new LumaFrame(8, 4, 0, 0);
+        // The slow engine is still on both earlier frames; the third race is run by the fast one alone
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Collections.singletonList(HIT), racing.decode(frame));
+        }
+
+        racing.close();
+        Thread.sleep(50);
+        assertFalse("closed under a running decode", slow.closed);
+
+        slow.go.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(slow.closed && fast.closed) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(slow.closed);
+        assertTrue(fast.closed);
+    }
+}
@@ -0,0 +1,63 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ScanConsensusTest {
+
+    @Test
+    public void commitsOnlyOnceEnoughFramesAgree() {
+        ScanConsensus consensus = new ScanConsensus(5, 3, false);
+        assertNull(consensus.offer("BOX-0042"));
+        assertNull(consensus.offer("BOX-0043")); // A misread in between
+        assertNull(consensus.offer("BOX-0042"));
+        assertEquals("BOX-0042", consensus.offer("BOX-0042"));
+    }
+
+    @Test
+    public void votesAgeOutOfTheWindow() {
+        ScanConsensus consensus = new ScanConsensus(3, 2, false);
+        assertNull(consensus.offer("BOX-0042"));
+        assertNull(consensus.offer(null));
+        assertNull(consensus.offer(null));
+        // The first read has left the window of three frames
+        assertNull(consensus.offer("BOX-0042"));
+        assertEquals("BOX-0042", consensus.offer("BOX-0042"));
+    }
+
+    @Test
+    public void validCheckDigitCommitsOnFirstReadWhenTrusted() {
+        ScanConsensus trusting = new ScanConsensus(5, 3, true);
+        assertEquals("5901234123457", trusting.offer("5901234123457"));
+        assertNull(trusting.offer("5901234123458")); // Bad check digit still needs votes
+
+        ScanConsensus strict = new ScanConsensus(5, 3, false);
+        assertNull(strict.offer("5901234123457"));
+    }
+
+    @Test
+    public void resetForgetsEarlierVotes() {
+        ScanConsensus consensus = new ScanConsensus(5, 2, false);
+        assertNull(consensus.offer("BOX-0042"));
+        consensus.reset();
+        assertNull(consensus.offer("BOX-0042"));
+        assertEquals("BOX-0042", consensus.offer("BOX-0042"));
+    }
+
+    @Test
+    public void everyValueOfAFrameIsVotedOnSeparately() {
+        ScanConsensus consensus = new ScanConsensus(4, 2, false);
+        assertEquals(Collections.emptyList(), consensus.offerAll(Arrays.asList("A-1", "B-2")));
+        assertEquals(Arrays.asList("A-1"), consensus.offerAll(Arrays.asList("A-1", "C-3")));
+        assertEquals(Arrays.asList("B-2", "C-3"), consensus.offerAll(Arrays.asList("B-2", "C-3")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMoreVotesThanFrames() {
+        new ScanConsensus(2, 3, false);
+    }
+}
@@ -0,0 +1,75 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanPipelineTest {
+
+    /** Reports nothing, and fails the test if used after being closed. */
+    private static class RecordingDecoder implements BarcodeDecoder {
+        boolean closed;
+        Runnable duringDecode;
+
+        @Override
+        public List<DecodedBarcode> decode(LumaFrame frame) {
+            assertFalse("decode on a closed decoder", closed);
+            if (duringDecode != null) {
+                duringDecode.run();
+            }
+            assertFalse("closed while decoding", closed);
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void close() {
+            assertFalse("closed twice", closed);
+            closed = true;
+        }
+    }
+
+    private static ScanPipeline newPipeline(BarcodeDecoder decoder) {
+        return new ScanPipeline(decoder, new ScanRegion(), new LumaFramePool(2), new FrameScheduler(0, 2),
+                new ScanConsensus(3, 2, false), new ScanMetrics(), value -> { });
+    }
+
+    @Test
+    public void idleDecoderIsClosedWhenSwappedOut() {
+        RecordingDecoder old = new RecordingDecoder();
+        ScanPipeline pipeline = newPipeline(old);
+
+        pipeline.setDecoder(new RecordingDecoder());
+
+        assertTrue(old.closed);
+    }
+
+    @Test
+    public void decoderSwappedOutMidDecodeIsClosedAfterwards() throws Exception {
+        RecordingDecoder old = new RecordingDecoder();
+        RecordingDecoder replacement = new RecordingDecoder();
+        ScanPipeline pipeline = newPipeline(old);
+        // Another thread changes the profile while this decode is running
+        old.duringDecode = () -> pipeline.setDecoder(replacement);
+
+        assertTrue(pipeline.tryBeginFrame(0));
+        pipeline.processFrame(TestFrames.blankFrame(64, 32));
+
+        assertTrue(old.closed);
+        assertFalse(replacement.closed);
+        assertSame(replacement, pipeline.getDecoder());
+    }
+
+    @Test
+    public void framesAfterShutdownAreDroppedWithoutDecoding() throws Exception {
+        RecordingDecoder decoder = new RecordingDecoder();
+        ScanPipeline pipeline = newPipeline(decoder);
+        pipeline.setDecoder(null);
+
+        assertTrue(pipeline.tryBeginFrame(0));
+        assertNull(pipeline.processFrame(TestFrames.blankFrame(64, 32)));
+        assertTrue(decoder.closed);
+    }
+}
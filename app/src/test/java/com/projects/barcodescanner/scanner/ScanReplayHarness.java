@@ -0,0 +1,270 @@
+package com.projects.barcodescanner.scanner;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Replays stored frames through {@link ScanPipeline}, the same crop, decode and consensus path
+ * the camera analyzer uses, and reports throughput, hit rate and per-image latency.
+ *
+ * Inputs are read from a directory:
+ * <ul>
+ *     <li>JPEG/PNG images, converted to luma and treated as upright frames.</li>
+ *     <li>Raw Y planes named {@code <name>_<W>x<H>.y} (or {@code .gray}), optionally with
+ *     {@code _r<degrees>} for frames recorded from a rotated sensor, e.g. {@code shelf_640x480_r90.y}.</li>
+ * </ul>
+ * If a file name contains {@code __}, the part before it is the value the frame is expected to
+ * decode to, e.g. {@code 5901234123457__kitchen.jpg}; those frames are also checked for wrong reads.
+ * Expected GTINs may be written in any spelling; they are compared by {@link Gtin#canonicalKey}.
+ */
+final class ScanReplayHarness {
+
+    private static final Pattern RAW_NAME = Pattern.compile(".*_(\\d+)x(\\d+)(?:_r(\\d+))?\\.(?:y|gray)$");
+
+    /** One stored frame, upright or as the sensor delivered it. */
+    static final class Sample {
+        final String name;
+        final String expected;
+        final byte[] luma;
+        final int width;
+        final int height;
+        final int rotationDegrees;
+
+        Sample(String name, String expected, byte[] luma, int width, int height, int rotationDegrees) {
+            this.name = name;
+            this.expected = expected;
+            this.luma = luma;
+            this.width = width;
+            this.height = height;
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
+
+    /** Outcome of replaying one sample. */
+    static final class Result {
+        final Sample sample;
+        final String committed;
+        final int framesUsed;
+        final long nanos;
+
+        Result(Sample sample, String committed, int framesUsed, long nanos) {
+            this.sample = sample;
+            this.committed = committed;
+            this.framesUsed = framesUsed;
+            this.nanos = nanos;
+        }
+
+        boolean isHit() {
+            return committed != null && (sample.expected == null || expectedKey().equals(committed));
+        }
+
+        boolean isWrongRead() {
+            return committed != null && sample.expected != null && !expectedKey().equals(committed);
+        }
+
+        // The pipeline commits canonical keys, e.g. a UPC-A label as its EAN-13 spelling
+        private String expectedKey() {
+            String key = Gtin.canonicalKey(sample.expected);
+            return key != null ? key : sample.expected;
+        }
+    }
+
+    /** Totals for one replay run. */
+    static final class Report {
+        final List<Result> results;
+        final ScanMetrics metrics;
+        final FocusFilter focusFilter;
+        final long totalNanos;
+        final int totalFrames;
+
+        Report(List<Result> results, ScanMetrics metrics, FocusFilter focusFilter, long totalNanos, int totalFrames) {
+            this.results = results;
+            this.metrics = metrics;
+            this.focusFilter = focusFilter;
+            this.totalNanos = totalNanos;
+            this.totalFrames = totalFrames;
+        }
+
+        int hits() {
+            int hits = 0;
+            for (Result r : results) {
+                if (r.isHit()) hits++;
+            }
+            return hits;
+        }
+
+        int wrongReads() {
+            int wrong = 0;
+            for (Result r : results) {
+                if (r.isWrongRead()) wrong++;
+            }
+            return wrong;
+        }
+
+        double hitRate() {
+            return results.isEmpty() ? 0 : (double) hits() / results.size();
+        }
+
+        double framesPerSecond() {
+            return totalNanos == 0 ? 0 : totalFrames * 1e9 / totalNanos;
+        }
+
+        void print(PrintStream out) {
+            for (Result r : results) {
+                out.printf(Locale.US, "%-40s %-8s %2d frames %8.2f ms  %s%n", r.sample.name,
+                        r.isHit() ? "hit" : r.isWrongRead() ? "WRONG" : "miss",
+                        r.framesUsed, r.nanos / 1e6, r.committed == null ? "" : r.committed);
+            }
+            out.printf(Locale.US, "%d images, %d hits (%.1f%%), %d wrong reads, %d frames, %.1f frames/s%n",
+                    results.size(), hits(), hitRate() * 100, wrongReads(), totalFrames, framesPerSecond());
+            LatencyHistogram copy = metrics.get(ScanMetrics.Stage.FRAME_COPY);
+            LatencyHistogram decode = metrics.get(ScanMetrics.Stage.DECODE);
+            out.printf(Locale.US, "frame copy p50 %.2f ms p95 %.2f ms, decode p50 %.2f ms p95 %.2f ms max %.2f ms%n",
+                    copy.percentileMillis(50), copy.percentileMillis(95),
+                    decode.percentileMillis(50), decode.percentileMillis(95), decode.maxMillis());
+            out.println(focusFilter);
+        }
+    }
+
+    private final BarcodeDecoder decoder;
+    private final int windowSize;
+    private final int requiredVotes;
+    private final int maxFramesPerSample;
+
+    /**
+     * @param maxFramesPerSample how many times a still image is offered before it counts as a miss;
+     *                           a live camera would have delivered that many frames of it
+     */
+    ScanReplayHarness(BarcodeDecoder decoder, int windowSize, int requiredVotes, int maxFramesPerSample) {
+        this.decoder = decoder;
+        this.windowSize = windowSize;
+        this.requiredVotes = requiredVotes;
+        this.maxFramesPerSample = maxFramesPerSample;
+    }
+
+    Report replay(List<Sample> samples) throws Exception {
+        ScanRegion region = new ScanRegion();
+        ScanMetrics metrics = new ScanMetrics();
+        String[] committed = new String[1];
+        ScanPipeline pipeline = new ScanPipeline(decoder, region, new LumaFramePool(2),
+                new FrameScheduler(0, 1), new ScanConsensus(windowSize, requiredVotes, false), metrics,
+                value -> committed[0] = value);
+        // Same pre-decode filtering as the camera path; motion does not apply to stored frames
+        FocusFilter focusFilter = new FocusFilter();
+        pipeline.setFocusFilter(focusFilter);
+
+        List<Result> results = new ArrayList<>();
+        int totalFrames = 0;
+        long runStart = System.nanoTime();
+        for (Sample sample : samples) {
+            setOverlayViewport(region, sample);
+            ByteBuffer plane = ByteBuffer.wrap(sample.luma);
+            committed[0] = null;
+            int frames = 0;
+            long start = System.nanoTime();
+            while (committed[0] == null && frames < maxFramesPerSample) {
+                // The scheduler is bypassed: replay runs as fast as the decoder allows
+                LumaFrame frame = pipeline.extractFrame(plane, sample.width, 1, sample.width, sample.height,
+                        sample.rotationDegrees, System.nanoTime());
+                pipeline.processFrame(frame);
+                frames++;
+            }
+            results.add(new Result(sample, committed[0], frames, System.nanoTime() - start));
+            totalFrames += frames;
+            pipeline.resume();
+        }
+        return new Report(results, metrics, focusFilter, System.nanoTime() - runStart, totalFrames);
+    }
+
+    /**
+     * Places the viewfinder the way {@code ScannerOverlayView} does on a view the size of the
+     * upright frame, so the crop matches what a user would have lined up on screen.
+     */
+    private static void setOverlayViewport(ScanRegion region, Sample sample) {
+        boolean sideways = sample.rotationDegrees == 90 || sample.rotationDegrees == 270;
+        int viewWidth = sideways ? sample.height : sample.width;
+        int viewHeight = sideways ? sample.width : sample.height;
+        float boxWidth = viewWidth * 0.8f;
+        float boxHeight = boxWidth * 0.5f;
+        float left = (viewWidth - boxWidth) / 2;
+        float top = (viewHeight - boxHeight) / 2;
+        region.setViewport(viewWidth, viewHeight, left, top, left + boxWidth, top + boxHeight, true);
+    }
+
+    static List<Sample> loadDirectory(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + dir);
+        }
+        Arrays.sort(files);
+        List<Sample> samples = new ArrayList<>();
+        for (File file : files) {
+            Sample sample = load(file);
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * @return the sample, or null if the file is not a frame this harness understands
+     */
+    static Sample load(File file) throws IOException {
+        String name = file.getName();
+        String lower = name.toLowerCase(Locale.US);
+        int split = name.indexOf("__");
+        String expected = split > 0 ? name.substring(0, split) : null;
+
+        Matcher raw = RAW_NAME.matcher(lower);
+        if (raw.matches()) {
+            int width = Integer.parseInt(raw.group(1));
+            int height = Integer.parseInt(raw.group(2));
+            int rotation = raw.group(3) == null ? 0 : Integer.parseInt(raw.group(3));
+            byte[] luma = Files.readAllBytes(file.toPath());
+            if (luma.length < width * height) {
+                throw new IOException(name + " is shorter than " + width + "x" + height);
+            }
+            return new Sample(name, expected, luma, width, height, rotation);
+        }
+        if (lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Unreadable image: " + name);
+            }
+            // The crop and NV21 layout want even dimensions
+            int width = image.getWidth() & ~1;
+            int height = image.getHeight() & ~1;
+            return new Sample(name, expected, toLuma(image, width, height), width, height, 0);
+        }
+        return null;
+    }
+
+    private static byte[] toLuma(BufferedImage image, int width, int height) {
+        byte[] luma = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                luma[y * width + x] = (byte) ((299 * r + 587 * g + 114 * b) / 1000);
+            }
+        }
+        return luma;
+    }
+}
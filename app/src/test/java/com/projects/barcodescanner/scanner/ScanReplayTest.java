@@ -0,0 +1,69 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a frame corpus through the scan pipeline and prints the numbers.
+ *
+ * Point it at recorded frames with {@code -Dscan.replay.dir=/path/to/frames}
+ * (see {@link ScanReplayHarness} for the file naming); without it a small synthetic corpus is used.
+ */
+public class ScanReplayTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void replayCorpus() throws Exception {
+        String dir = System.getProperty("scan.replay.dir");
+        File corpus = dir != null ? new File(dir) : writeSyntheticCorpus(temp.newFolder("corpus"));
+        List<ScanReplayHarness.Sample> samples = ScanReplayHarness.loadDirectory(corpus);
+        assertFalse("No frames in " + corpus, samples.isEmpty());
+
+        ScanReplayHarness.Report report = newHarness().replay(samples);
+        report.print(System.out);
+
+        assertEquals(0, report.wrongReads());
+        if (dir == null) {
+            // Everything but the blank frame decodes
+            assertEquals(samples.size() - 1, report.hits());
+        }
+    }
+
+    private static ScanReplayHarness newHarness() {
+        // ZXing with every format, since ML Kit needs a device; consensus as the app's defaults
+        return new ScanReplayHarness(new ZxingBarcodeDecoder(null, false), 5, 2, 10);
+    }
+
+    private static File writeSyntheticCorpus(File dir) throws Exception {
+        writePng(dir, "5901234123457__ean13.png", TestFrames.renderUpright("5901234123457", BarcodeFormat.EAN_13, 640, 480), 640, 480);
+        writePng(dir, "036000291452__upca.png", TestFrames.renderUpright("036000291452", BarcodeFormat.UPC_A, 640, 480), 640, 480);
+        writePng(dir, "blank.png", new byte[640 * 480], 640, 480);
+
+        // A frame as the sensor records it with the phone held upright
+        byte[] upright = TestFrames.renderUpright("BOX-0042", BarcodeFormat.CODE_128, 480, 640);
+        byte[] sensor = TestFrames.toSensorFrame(upright, 480, 640, 90).getData();
+        Files.write(new File(dir, "BOX-0042__code128_640x480_r90.y").toPath(), Arrays.copyOf(sensor, 640 * 480));
+        return dir;
+    }
+
+    private static void writePng(File dir, String name, byte[] luma, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setDataElements(0, 0, width, height, luma);
+        ImageIO.write(image, "png", new File(dir, name));
+    }
+}
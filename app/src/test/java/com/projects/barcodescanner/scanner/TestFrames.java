@@ -0,0 +1,105 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.common.BitMatrix;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Synthetic camera frames for JVM tests and benchmarks.
+ */
+final class TestFrames {
+
+    private static final byte WHITE = (byte) 230;
+    private static final byte BLACK = (byte) 30;
+
+    private TestFrames() {
+    }
+
+    /**
+     * Renders a barcode centred on a light background, as the camera would see it upright.
+     */
+    static byte[] renderUpright(String value, BarcodeFormat format, int width, int height) throws Exception {
+        int codeWidth = width * 3 / 4;
+        int codeHeight = format == BarcodeFormat.QR_CODE ? codeWidth : height / 2;
+        BitMatrix matrix = new MultiFormatWriter().encode(value, format, codeWidth, codeHeight,
+                Collections.singletonMap(EncodeHintType.MARGIN, 2));
+        byte[] luma = new byte[width * height];
+        java.util.Arrays.fill(luma, WHITE);
+        int left = (width - matrix.getWidth()) / 2;
+        int top = (height - matrix.getHeight()) / 2;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y)) {
+                    luma[(top + y) * width + left + x] = BLACK;
+                }
+            }
+        }
+        return luma;
+    }
+
+    /**
+     * Wraps an upright luma image into a frame as the sensor would deliver it, i.e. turned so that
+     * rotating it clockwise by {@code rotationDegrees} makes it upright again.
+     */
+    static LumaFrame toSensorFrame(byte[] upright, int width, int height, int rotationDegrees) {
+        byte[] sensor = upright;
+        int sensorWidth = width;
+        int sensorHeight = height;
+        if (rotationDegrees == 90 || rotationDegrees == 270) {
+            sensorWidth = height;
+            sensorHeight = width;
+            sensor = new byte[upright.length];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int sx = rotationDegrees == 90 ? y : height - 1 - y;
+                    int sy = rotationDegrees == 90 ? width - 1 - x : x;
+                    sensor[sy * sensorWidth + sx] = upright[y * width + x];
+                }
+            }
+        }
+        LumaFrame frame = new LumaFrame(sensorWidth, sensorHeight, rotationDegrees, System.nanoTime());
+        frame.copyFromPlane(ByteBuffer.wrap(sensor), sensorWidth, 1, 0, 0);
+        return frame;
+    }
+
+    static LumaFrame barcodeFrame(String value, BarcodeFormat format, int width, int height, int rotationDegrees) throws Exception {
+        return toSensorFrame(renderUpright(value, format, width, height), width, height, rotationDegrees);
+    }
+
+    /**
+     * Box-blurs an image horizontally and vertically, roughly what a defocused lens does to bar edges.
+     */
+    static byte[] blur(byte[] luma, int width, int height, int radius) {
+        byte[] horizontal = new byte[luma.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0, n = 0;
+                for (int k = Math.max(0, x - radius); k <= Math.min(width - 1, x + radius); k++, n++) {
+                    sum += luma[y * width + k] & 0xff;
+                }
+                horizontal[y * width + x] = (byte) (sum / n);
+            }
+        }
+        byte[] out = new byte[luma.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0, n = 0;
+                for (int k = Math.max(0, y - radius); k <= Math.min(height - 1, y + radius); k++, n++) {
+                    sum += horizontal[k * width + x] & 0xff;
+                }
+                out[y * width + x] = (byte) (sum / n);
+            }
+        }
+        return out;
+    }
+
+    static LumaFrame blankFrame(int width, int height) {
+        byte[] luma = new byte[width * height];
+        java.util.Arrays.fill(luma, WHITE);
+        return toSensorFrame(luma, width, height, 0);
+    }
+}
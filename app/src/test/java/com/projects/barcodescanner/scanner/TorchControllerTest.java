@@ -0,0 +1,96 @@
+package com.projects.barcodescanner.scanner;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TorchControllerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final List<Boolean> calls = new ArrayList<>();
+    private final TorchController controller = new TorchController(calls::add);
+
+    /** Reports the same crop at 30 fps from {@code startMs} for {@code durationMs}. */
+    private void frames(double meanLuma, double glareFraction, long startMs, long durationMs) {
+        for (long ms = startMs; ms < startMs + durationMs; ms += 33) {
+            controller.onFrame(meanLuma, glareFraction, ms * MS);
+        }
+    }
+
+    @Test
+    public void turnsOnOnlyAfterHalfASecondOfDarkness() {
+        frames(30, 0, 0, 450);
+        assertFalse(controller.isEnabled());
+
+        controller.onFrame(30, 0, 500 * MS);
+        assertTrue(controller.isEnabled());
+        assertEquals(Arrays.asList(true), calls);
+    }
+
+    @Test
+    public void aBrightFrameRestartsTheDelay() {
+        frames(30, 0, 0, 400);
+        controller.onFrame(100, 0, 400 * MS);
+        frames(30, 0, 433, 400);
+
+        assertFalse(controller.isEnabled());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void staysOnBetweenTheThresholds() {
+        frames(30, 0, 0, 600);
+        assertTrue(controller.isEnabled());
+
+        // Brighter than the on threshold, but the torch itself lights the scene
+        frames(120, 0, 600, 3000);
+
+        assertTrue(controller.isEnabled());
+        assertEquals(1, controller.getSwitches());
+    }
+
+    @Test
+    public void turnsOffAfterASecondOfBrightnessOrGlare() {
+        frames(30, 0, 0, 600);
+        frames(200, 0, 600, 900);
+        assertTrue(controller.isEnabled());
+        controller.onFrame(200, 0, 1600 * MS);
+        assertFalse(controller.isEnabled());
+
+        frames(30, 0, 2000, 600);
+        assertTrue(controller.isEnabled());
+        // A shiny label reflecting the torch, though the crop is not bright on average
+        frames(120, 0.5, 2600, 1100);
+        assertFalse(controller.isEnabled());
+        assertEquals(Arrays.asList(true, false, true, false), calls);
+    }
+
+    @Test
+    public void darkRoomBringsTheTorchOnSooner() {
+        controller.onAmbientLight(2);
+        frames(60, 0, 0, 600);
+        assertTrue(controller.isEnabled());
+
+        TorchController brightRoom = new TorchController(enabled -> { });
+        brightRoom.onAmbientLight(1000);
+        for (long ms = 0; ms < 600; ms += 33) {
+            brightRoom.onFrame(50, 0, ms * MS);
+        }
+        assertFalse(brightRoom.isEnabled());
+    }
+
+    @Test
+    public void resetForgetsTheStateWithoutCallingTheTorch() {
+        frames(30, 0, 0, 600);
+        controller.reset();
+
+        assertFalse(controller.isEnabled());
+        frames(30, 0, 600, 600);
+        assertEquals(Arrays.asList(true, true), calls);
+    }
+}
@@ -0,0 +1,120 @@
+package com.projects.barcodescanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Accuracy and speed of the pure-Java decode engine, runnable without a device.
+ */
+public class ZxingBarcodeDecoderTest {
+
+    private static final String EAN_13 = "5901234123457";
+
+    private final ZxingBarcodeDecoder retailDecoder = new ZxingBarcodeDecoder(
+            EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.UPC_A, BarcodeFormat.QR_CODE), false);
+
+    @Test
+    public void decodesUprightEan13() throws Exception {
+        List<DecodedBarcode> values = retailDecoder.decode(TestFrames.barcodeFrame(EAN_13, BarcodeFormat.EAN_13, 640, 320, 0));
+        assertEquals(1, values.size());
+        assertEquals(EAN_13, values.get(0).getValue());
+        assertEquals(BarcodeFormat.EAN_13, values.get(0).getFormat());
+    }
+
+    @Test
+    public void decodesSidewaysFramesForEveryRotation() throws Exception {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            List<DecodedBarcode> values = retailDecoder.decode(TestFrames.barcodeFrame(EAN_13, BarcodeFormat.EAN_13, 640, 320, rotation));
+            assertEquals("rotation " + rotation, 1, values.size());
+            assertEquals(EAN_13, values.get(0).getValue());
+        }
+    }
+
+    @Test
+    public void decodesQrCode() throws Exception {
+        String url = "https://id.gs1.org/01/09506000134352";
+        List<DecodedBarcode> values = retailDecoder.decode(TestFrames.barcodeFrame(url, BarcodeFormat.QR_CODE, 480, 480, 90));
+        assertEquals(1, values.size());
+        assertEquals(url, values.get(0).getValue());
+    }
+
+    @Test
+    public void reportsUpcEWithItsFormat() throws Exception {
+        ZxingBarcodeDecoder upcE = new ZxingBarcodeDecoder(EnumSet.of(BarcodeFormat.EAN_8, BarcodeFormat.UPC_E), false);
+        List<DecodedBarcode> values = upcE.decode(TestFrames.barcodeFrame("01234565", BarcodeFormat.UPC_E, 480, 240, 0));
+        assertEquals(1, values.size());
+        assertEquals(BarcodeFormat.UPC_E, values.get(0).getFormat());
+        assertEquals("0012345000065", Gtin.canonicalKey(values.get(0).getValue(), values.get(0).getFormat()));
+    }
+
+    @Test
+    public void returnsNothingForBlankFrame() {
+        assertTrue(retailDecoder.decode(TestFrames.blankFrame(640, 320)).isEmpty());
+    }
+
+    @Test
+    public void ignoresFormatsOutsideTheProfile() throws Exception {
+        ZxingBarcodeDecoder logistics = new ZxingBarcodeDecoder(EnumSet.of(BarcodeFormat.CODE_128, BarcodeFormat.ITF), false);
+        assertTrue(logistics.decode(TestFrames.barcodeFrame(EAN_13, BarcodeFormat.EAN_13, 640, 320, 0)).isEmpty());
+    }
+
+    @Test
+    public void multipleModeReturnsEveryCodeInFrame() throws Exception {
+        // Two labels stacked on one tray
+        byte[] top = TestFrames.renderUpright(EAN_13, BarcodeFormat.EAN_13, 640, 240);
+        byte[] bottom = TestFrames.renderUpright("036000291452", BarcodeFormat.UPC_A, 640, 240);
+        byte[] tray = new byte[640 * 480];
+        System.arraycopy(top, 0, tray, 0, top.length);
+        System.arraycopy(bottom, 0, tray, top.length, bottom.length);
+        LumaFrame frame = TestFrames.toSensorFrame(tray, 640, 480, 90);
+
+        ZxingBarcodeDecoder multi = new ZxingBarcodeDecoder(null, false, true);
+        List<String> values = new ArrayList<>();
+        for (DecodedBarcode decoded : multi.decode(frame)) {
+            values.add(decoded.getValue());
+        }
+        assertEquals(2, values.size());
+        assertTrue(values.contains(EAN_13));
+        assertTrue(values.contains("036000291452"));
+        assertEquals(1, retailDecoder.decode(frame).size());
+    }
+
+    @Test
+    public void decodesWithinFrameBudgetAndProfileNarrowsTheSearch() throws Exception {
+        LumaFrame hit = TestFrames.barcodeFrame(EAN_13, BarcodeFormat.EAN_13, 640, 320, 90);
+        LumaFrame miss = TestFrames.blankFrame(640, 320);
+        ZxingBarcodeDecoder allFormats = new ZxingBarcodeDecoder(null, false);
+
+        for (int i = 0; i < 50; i++) {
+            retailDecoder.decode(hit);
+            allFormats.decode(hit);
+            retailDecoder.decode(miss);
+            allFormats.decode(miss);
+        }
+        // Generous against a 30 fps frame interval, so slow CI machines still pass
+        assertTrue(bestMillisPerFrame(retailDecoder, hit) < 33);
+        // Empty frames are the common case; a profile skips the readers it does not need
+        assertTrue(bestMillisPerFrame(retailDecoder, miss) < bestMillisPerFrame(allFormats, miss));
+    }
+
+    /** Fastest of several timed batches, which keeps GC pauses and JIT noise out of the comparison. */
+    private static double bestMillisPerFrame(ZxingBarcodeDecoder decoder, LumaFrame frame) {
+        int runs = 40;
+        double best = Double.MAX_VALUE;
+        for (int batch = 0; batch < 5; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                decoder.decode(frame);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1e6 / runs);
+        }
+        return best;
+    }
+}
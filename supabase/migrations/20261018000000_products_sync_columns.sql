@@ -0,0 +1,33 @@
+-- Columns the app's incremental sync relies on (ProductSync, LocalProductStore).
+--
+-- updated_at: when the row last changed. Sync pages through rows in (updated_at, barcode) order
+--             after a per-location watermark, so every write has to move it forward.
+-- deleted:    soft-delete flag. A deleted product is kept as a tombstone so devices that synced it
+--             learn to drop their copy; delete products by setting it rather than with DELETE.
+
+alter table public.products
+    add column if not exists updated_at timestamptz not null default now(),
+    add column if not exists deleted boolean not null default false;
+
+create or replace function public.products_touch_updated_at()
+returns trigger
+language plpgsql
+as $$
+begin
+    new.updated_at := now();
+    return new;
+end;
+$$;
+
+drop trigger if exists products_touch_updated_at on public.products;
+create trigger products_touch_updated_at
+    before update on public.products
+    for each row execute function public.products_touch_updated_at();
+
+-- Delta sync: location = ? and (updated_at, barcode) > (?, ?) order by updated_at, barcode
+create index if not exists products_location_updated_at_barcode_idx
+    on public.products (location, updated_at, barcode);
+
+-- Carousel pages: location = ? and barcode > ? order by barcode
+create index if not exists products_location_barcode_idx
+    on public.products (location, barcode);